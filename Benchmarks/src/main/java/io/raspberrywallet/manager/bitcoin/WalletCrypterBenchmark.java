@@ -0,0 +1,72 @@
+package io.raspberrywallet.manager.bitcoin;
+
+import io.raspberrywallet.contract.IncorrectPasswordException;
+import org.bitcoinj.params.TestNet3Params;
+import org.bitcoinj.wallet.Wallet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold operations are dominated by scrypt key derivation, so they are measured in few long iterations.
+ * Lock cycle is encrypt, decrypt and encrypt again, the sequence wallet locking used to run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = 1)
+@Measurement(iterations = 5, batchSize = 1)
+@Fork(1)
+public class WalletCrypterBenchmark {
+
+    private static final String password = "benchmark password";
+
+    private final WalletCrypter walletCrypter = new WalletCrypter();
+    private final WalletCrypter retainingCrypter = new WalletCrypter();
+    private Wallet plainWallet;
+    private Wallet encryptedWallet;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws IncorrectPasswordException {
+        plainWallet = new Wallet(TestNet3Params.get());
+        encryptedWallet = new Wallet(TestNet3Params.get());
+        walletCrypter.encryptWallet(encryptedWallet, password);
+        walletCrypter.destroy();
+        if (!retainingCrypter.hasRetainedKey())
+            retainingCrypter.encryptWallet(new Wallet(TestNet3Params.get()), password);
+    }
+
+    @Benchmark
+    public Wallet encryptWallet() throws IncorrectPasswordException {
+        walletCrypter.encryptWallet(plainWallet, password);
+        walletCrypter.destroy();
+        return plainWallet;
+    }
+
+    @Benchmark
+    public Wallet decryptWallet() throws IncorrectPasswordException {
+        walletCrypter.decryptWallet(encryptedWallet, password);
+        walletCrypter.destroy();
+        return encryptedWallet;
+    }
+
+    @Benchmark
+    public Wallet lockCycleDerivingKeys() throws IncorrectPasswordException {
+        WalletCrypter crypter = new WalletCrypter();
+        crypter.encryptWallet(plainWallet, password);
+        crypter.destroy();
+        crypter.decryptWallet(plainWallet, password);
+        crypter.destroy();
+        crypter.encryptWallet(plainWallet, password);
+        crypter.destroy();
+        return plainWallet;
+    }
+
+    @Benchmark
+    public Wallet lockCycleRetainedKey() throws IncorrectPasswordException {
+        retainingCrypter.encryptWallet(plainWallet, password);
+        retainingCrypter.decryptWallet(plainWallet, password);
+        retainingCrypter.encryptWallet(plainWallet, password);
+        return plainWallet;
+    }
+}
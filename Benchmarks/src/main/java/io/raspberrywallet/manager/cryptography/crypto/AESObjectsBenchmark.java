@@ -0,0 +1,66 @@
+package io.raspberrywallet.manager.cryptography.crypto;
+
+import io.raspberrywallet.manager.common.wrappers.ByteWrapper;
+import io.raspberrywallet.manager.cryptography.crypto.algorithms.AESCipherParams;
+import io.raspberrywallet.manager.cryptography.crypto.algorithms.DerivedKeyCache;
+import io.raspberrywallet.manager.cryptography.crypto.exceptions.DecryptionException;
+import io.raspberrywallet.manager.cryptography.crypto.exceptions.EncryptionException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AESObjectsBenchmark {
+
+    private static final String password = "benchmark password";
+
+    // in bytes
+    @Param({"32", "1024", "65536"})
+    private int payloadSize;
+
+    /**
+     * When false, PBKDF2 key derivation is measured on every call, as on the first unlock after start
+     */
+    @Param({"true", "false"})
+    private boolean derivedKeyCached;
+
+    private ByteWrapper payload;
+    private AESCipherParams cipherParams;
+    private AESEncryptedObject<ByteWrapper> encryptedPayload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws EncryptionException {
+        byte[] data = new byte[payloadSize];
+        new Random().nextBytes(data);
+        payload = new ByteWrapper(data);
+        cipherParams = new AESCipherParams();
+        encryptedPayload = CryptoObject.encrypt(payload, password, cipherParams);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearDerivedKeys() {
+        if (!derivedKeyCached)
+            DerivedKeyCache.getInstance().destroy();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DerivedKeyCache.getInstance().destroy();
+    }
+
+    @Benchmark
+    public AESEncryptedObject<ByteWrapper> encrypt() throws EncryptionException {
+        return CryptoObject.encrypt(payload, password, cipherParams.withNewIv());
+    }
+
+    @Benchmark
+    public ByteWrapper decrypt() throws DecryptionException {
+        return CryptoObject.decrypt(encryptedPayload, password);
+    }
+}
@@ -0,0 +1,64 @@
+package io.raspberrywallet.manager.cryptography.crypto;
+
+import io.raspberrywallet.manager.cryptography.crypto.algorithms.DerivedKeyCache;
+import io.raspberrywallet.manager.cryptography.crypto.exceptions.DecryptionException;
+import io.raspberrywallet.manager.cryptography.crypto.exceptions.EncryptionException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures AES stream encryption of payloads as big as a wallet backup or the SPV chain file.
+ * Encryption always derives a key for a fresh salt, while decryption gets it from the cache after the first call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CryptoStreamBenchmark {
+
+    private static final String password = "benchmark password";
+
+    // in bytes
+    @Param({"65536", "1048576", "8388608"})
+    private int payloadSize;
+
+    private byte[] payload;
+    private byte[] encryptedPayload;
+    private ByteArrayOutputStream outputStream;
+
+    @Setup(Level.Trial)
+    public void setUp() throws EncryptionException {
+        payload = new byte[payloadSize];
+        new Random().nextBytes(payload);
+        outputStream = new ByteArrayOutputStream(payloadSize + 1024);
+
+        new CryptoStream(new ByteArrayInputStream(payload), outputStream).encrypt(password);
+        encryptedPayload = outputStream.toByteArray();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetOutput() {
+        outputStream.reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DerivedKeyCache.getInstance().destroy();
+    }
+
+    @Benchmark
+    public TransferStats encrypt() throws EncryptionException {
+        return new CryptoStream(new ByteArrayInputStream(payload), outputStream).encrypt(password);
+    }
+
+    @Benchmark
+    public TransferStats decrypt() throws DecryptionException {
+        return new CryptoStream(new ByteArrayInputStream(encryptedPayload), outputStream).decrypt(password);
+    }
+}
@@ -0,0 +1,47 @@
+package io.raspberrywallet.manager.cryptography.crypto;
+
+import io.raspberrywallet.manager.common.wrappers.ByteWrapper;
+import io.raspberrywallet.manager.cryptography.crypto.algorithms.RSACipherParams;
+import io.raspberrywallet.manager.cryptography.crypto.exceptions.DecryptionException;
+import io.raspberrywallet.manager.cryptography.crypto.exceptions.EncryptionException;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RSAObjectsBenchmark {
+
+    // in bytes, serialized ByteWrapper has to fit into single 2048 bit RSA block
+    @Param({"16", "80"})
+    private int payloadSize;
+
+    private ByteWrapper payload;
+    private KeyPair keyPair;
+    private RSAEncryptedObject<ByteWrapper> encryptedPayload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws EncryptionException {
+        byte[] data = new byte[payloadSize];
+        new Random().nextBytes(data);
+        payload = new ByteWrapper(data);
+        keyPair = new RSACipherParams().getKeyPairDefault();
+        encryptedPayload = CryptoObject.encrypt(payload, keyPair.getPublic());
+    }
+
+    @Benchmark
+    public RSAEncryptedObject<ByteWrapper> encrypt() throws EncryptionException {
+        return CryptoObject.encrypt(payload, keyPair.getPublic());
+    }
+
+    @Benchmark
+    public ByteWrapper decrypt() throws DecryptionException {
+        return CryptoObject.decrypt(encryptedPayload, keyPair.getPrivate());
+    }
+}
@@ -0,0 +1,47 @@
+package io.raspberrywallet.manager.cryptography.crypto.algorithms;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AESCipherParamsBenchmark {
+
+    private static final String password = "benchmark password";
+
+    /**
+     * When false, every call pays for the PBKDF2 key derivation
+     */
+    @Param({"true", "false"})
+    private boolean derivedKeyCached;
+
+    private AESCipherParams cipherParams;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cipherParams = new AESCipherParams();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearDerivedKeys() {
+        if (!derivedKeyCached)
+            DerivedKeyCache.getInstance().destroy();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DerivedKeyCache.getInstance().destroy();
+    }
+
+    @Benchmark
+    public Cipher getCipher() throws GeneralSecurityException {
+        return cipherParams.getCipher(password, Cipher.DECRYPT_MODE);
+    }
+}
@@ -0,0 +1,55 @@
+package io.raspberrywallet.manager.cryptography.sharedsecret.blakley;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BlakleyBenchmark {
+
+    /**
+     * Number of keys needed to recover the secret, which is also the dimension of the solved system
+     */
+    @Param({"2", "3", "5", "8"})
+    private int required;
+
+    /**
+     * Number of bits of keys
+     */
+    @Param({"256", "512"})
+    private int bits;
+
+    // in bytes
+    @Param({"32"})
+    private int secretSize;
+
+    private BigInteger[][] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] secret = new byte[secretSize];
+        new Random().nextBytes(secret);
+
+        BigInteger[] cords = Blakley.divide(required, secret);
+        keys = new BigInteger[required][];
+        for (int i = 0; i < required; i++)
+            keys[i] = Blakley.createdKey(cords, bits);
+    }
+
+    @Benchmark
+    public byte[] solutionKey() {
+        return Blakley.solutionKey(keys);
+    }
+
+    @Benchmark
+    public byte[] modularSolutionKey() {
+        return ModularBlakley.solutionKey(keys);
+    }
+}
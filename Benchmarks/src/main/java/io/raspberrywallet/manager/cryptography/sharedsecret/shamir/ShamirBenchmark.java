@@ -0,0 +1,72 @@
+package io.raspberrywallet.manager.cryptography.sharedsecret.shamir;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShamirBenchmark {
+
+    /**
+     * Number of generated shares, one for each module
+     */
+    @Param({"3", "5", "8"})
+    private int shares;
+
+    /**
+     * Number of shares needed to recover the secret
+     */
+    @Param({"2", "3"})
+    private int required;
+
+    // in bytes, 128 is roughly the size of 12 words mnemonic code used by Manager
+    @Param({"32", "128"})
+    private int secretSize;
+
+    private byte[] secret;
+    private int numBits;
+    private BigInteger[] polynomialParams;
+    private ShamirKey[] requiredKeys;
+    private GF256ShamirKey[] requiredGF256Keys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ShamirException {
+        secret = new byte[secretSize];
+        new Random().nextBytes(secret);
+        secret[0] &= 0x7f;
+        numBits = secretSize * 8;
+
+        polynomialParams = Shamir.generateParams(required, numBits, secret);
+        ShamirKey[] keys = Shamir.generateKeys(shares, required, numBits, polynomialParams);
+        requiredKeys = Arrays.copyOf(keys, required);
+        requiredGF256Keys = Arrays.copyOf(GF256Shamir.split(secret, shares, required), required);
+    }
+
+    @Benchmark
+    public ShamirKey[] generateKeys() throws ShamirException {
+        return Shamir.generateKeys(shares, required, numBits, polynomialParams);
+    }
+
+    @Benchmark
+    public byte[] calculateLagrange() {
+        return Shamir.calculateLagrange(requiredKeys);
+    }
+
+    @Benchmark
+    public GF256ShamirKey[] gf256Split() throws ShamirException {
+        return GF256Shamir.split(secret, shares, required);
+    }
+
+    @Benchmark
+    public byte[] gf256Combine() throws ShamirException {
+        return GF256Shamir.combine(requiredGF256Keys);
+    }
+}
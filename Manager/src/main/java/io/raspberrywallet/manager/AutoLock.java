@@ -0,0 +1,125 @@
+package io.raspberrywallet.manager;
+
+import com.stasbar.Logger;
+import lombok.Setter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Triggers lock after the given time without taps. Deadline is kept as System.nanoTime timestamp,
+ * so tapping is a single atomic store and the scheduler wakes up only when the deadline could have passed.
+ * It is armed when the wallet gets unlocked, taps only delay an armed lock, and after triggering
+ * or disarming it stays idle until armed again.
+ */
+public class AutoLock {
+    /**
+     * Deadline value meaning the lock is not armed
+     */
+    private final static long IDLE = Long.MIN_VALUE;
+
+    private final long timeoutNanos;
+    private final long countdownIntervalNanos;
+    @NotNull
+    private final ScheduledExecutorService scheduler;
+    @NotNull
+    private final Runnable onLockTriggered;
+    @NotNull
+    private final LongSupplier nanoTime;
+    private final AtomicLong deadline = new AtomicLong(IDLE);
+
+    @Nullable
+    @Setter
+    private volatile IntConsumer autoLockChannelListener;
+
+    /**
+     * @param timeout           time without taps after which lock is triggered
+     * @param countdownInterval interval of remaining seconds events, zero disables them
+     */
+    AutoLock(@NotNull Duration timeout, @NotNull Duration countdownInterval,
+             @NotNull ScheduledExecutorService scheduler, @NotNull Runnable onLockTriggered) {
+        this(timeout, countdownInterval, scheduler, onLockTriggered, System::nanoTime);
+    }
+
+    AutoLock(@NotNull Duration timeout, @NotNull Duration countdownInterval,
+             @NotNull ScheduledExecutorService scheduler, @NotNull Runnable onLockTriggered,
+             @NotNull LongSupplier nanoTime) {
+        this.timeoutNanos = timeout.toNanos();
+        this.countdownIntervalNanos = countdownInterval.toNanos();
+        this.scheduler = scheduler;
+        this.onLockTriggered = onLockTriggered;
+        this.nanoTime = nanoTime;
+    }
+
+    void start() {
+        scheduler.schedule(this::check, timeoutNanos, TimeUnit.NANOSECONDS);
+        if (countdownIntervalNanos > 0)
+            scheduler.scheduleAtFixedRate(this::publishRemaining,
+                    countdownIntervalNanos, countdownIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Starts counting down, called when the wallet gets unlocked
+     */
+    void arm() {
+        deadline.set(nanoTime.getAsLong() + timeoutNanos);
+    }
+
+    /**
+     * Stops counting down, called when the wallet gets locked by other means
+     */
+    void disarm() {
+        deadline.set(IDLE);
+    }
+
+    public void tap() {
+        long now = nanoTime.getAsLong();
+        deadline.getAndUpdate(current -> current == IDLE ? IDLE : now + timeoutNanos);
+    }
+
+    /**
+     * @return seconds remaining to lock, rounded up, or 0 when lock is not armed
+     */
+    public int getRemainingSeconds() {
+        long current = deadline.get();
+        if (current == IDLE)
+            return 0;
+        long remainingNanos = current - nanoTime.getAsLong();
+        return remainingNanos <= 0 ? 0 : (int) ((remainingNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    void check() {
+        long current = deadline.get();
+        long remainingNanos = current - nanoTime.getAsLong();
+        try {
+            if (current != IDLE && remainingNanos <= 0 && deadline.compareAndSet(current, IDLE)) {
+                Logger.d("Autolock triggered");
+                publish(0);
+                onLockTriggered.run();
+            }
+        } catch (RuntimeException e) {
+            Logger.err("Autolock failed " + e.getMessage());
+        } finally {
+            // tapped meanwhile, or idle waiting to be armed
+            scheduler.schedule(this::check, current == IDLE || remainingNanos <= 0 ? timeoutNanos : remainingNanos,
+                    TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void publishRemaining() {
+        if (deadline.get() != IDLE)
+            publish(getRemainingSeconds());
+    }
+
+    private void publish(int remainingSeconds) {
+        IntConsumer listener = autoLockChannelListener;
+        if (listener != null)
+            listener.accept(remainingSeconds);
+    }
+}
@@ -1,10 +1,12 @@
 package io.raspberrywallet.manager;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import io.raspberrywallet.contract.ServerConfig;
+import io.raspberrywallet.manager.cryptography.sharedsecret.shamir.ShamirScheme;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -45,6 +47,19 @@ final public class Configuration {
     @JsonProperty("autolock-seconds")
     private int autoLockSeconds = 60 * 5;
 
+    /**
+     * Interval of remaining autolock time events in seconds, 0 disables them
+     */
+    @JsonProperty("autolock-countdown-seconds")
+    private int autoLockCountdownSeconds = 1;
+
+    /**
+     * Shamir's scheme used to split the seed into key parts of new wallets,
+     * existing wallets are unlocked with the scheme they were created with
+     */
+    @JsonProperty("shamir-scheme")
+    private ShamirScheme shamirScheme = ShamirScheme.GF256;
+
     /**
      * Modules configuration object, hides HashMap<String, JsonNode>
      * TODO unwrap from ModulesConfiguration and provide custom accessors
@@ -58,6 +73,12 @@ final public class Configuration {
     @JsonProperty("bitcoin")
     private BitcoinConfig bitcoinConfig;
 
+    /**
+     * Wallet encryption key derivation, parameters are calibrated on the device when not given
+     */
+    @JsonProperty("scrypt")
+    private ScryptConfig scryptConfig = new ScryptConfig();
+
     /**
      * Bitcoin configuration object
      */
@@ -131,6 +152,52 @@ final public class Configuration {
         private String networkName = "testnet";
         @JsonProperty("user-agent")
         private String userAgent = "RaspberryWallet";
+
+        /**
+         * Interval between samples of blockchain synchronization progress
+         */
+        @JsonProperty("sync-progress-interval-millis")
+        private long syncProgressIntervalMillis = 1000;
+    }
+
+    @NoArgsConstructor
+    @Setter
+    @Getter
+    public static class ScryptConfig {
+        /**
+         * Time a single key derivation should take on this device
+         */
+        @JsonProperty("target-millis")
+        private int targetMillis = 1000;
+
+        /**
+         * Upper limit of memory used by a single key derivation
+         */
+        @JsonProperty("max-memory-mb")
+        private int maxMemoryMb = 64;
+
+        /**
+         * CPU/memory cost, power of two, 0 until calibrated
+         */
+        @JsonProperty("n")
+        private int n;
+
+        /**
+         * Block size
+         */
+        @JsonProperty("r")
+        private int r;
+
+        /**
+         * Parallelization
+         */
+        @JsonProperty("p")
+        private int p;
+
+        @JsonIgnore
+        public boolean isCalibrated() {
+            return n > 0 && r > 0 && p > 0;
+        }
     }
 
 }
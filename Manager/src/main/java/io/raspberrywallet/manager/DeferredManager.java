@@ -0,0 +1,238 @@
+package io.raspberrywallet.manager;
+
+import io.raspberrywallet.contract.*;
+import io.raspberrywallet.contract.module.ModuleState;
+import io.raspberrywallet.manager.linux.TemperatureMonitor;
+import io.raspberrywallet.manager.linux.WPAConfiguration;
+import io.raspberrywallet.manager.linux.WifiScanner;
+import io.raspberrywallet.manager.linux.WifiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Stands in for the Manager while Bitcoin, modules and database are still initializing, so the HTTP server can start first.
+ * Calls which need the subsystems throw ManagerNotReady until then, listeners are registered once the Manager is ready.
+ * Temperature and Wi-Fi do not depend on the wallet, they are answered right away.
+ */
+public class DeferredManager implements io.raspberrywallet.contract.Manager {
+
+    private final CompletableFuture<Manager> delegate = new CompletableFuture<>();
+    @NotNull
+    private final TemperatureMonitor tempMonitor;
+    @NotNull
+    private final WPAConfiguration wpaConfiguration;
+
+    DeferredManager(@NotNull TemperatureMonitor tempMonitor, @NotNull WPAConfiguration wpaConfiguration) {
+        this.tempMonitor = tempMonitor;
+        this.wpaConfiguration = wpaConfiguration;
+    }
+
+    void complete(@NotNull Manager manager) {
+        delegate.complete(manager);
+    }
+
+    void fail(@NotNull Throwable cause) {
+        delegate.completeExceptionally(cause);
+    }
+
+    public boolean isReady() {
+        return delegate.isDone() && !delegate.isCompletedExceptionally();
+    }
+
+    @Nullable
+    private Manager getIfReady() {
+        return isReady() ? delegate.join() : null;
+    }
+
+    @NotNull
+    private Manager get() {
+        if (delegate.isCompletedExceptionally()) {
+            try {
+                delegate.join();
+            } catch (CompletionException e) {
+                throw new ManagerNotReady("Startup failed: " + e.getCause());
+            }
+        }
+        Manager manager = getIfReady();
+        if (manager == null)
+            throw new ManagerNotReady("Wallet is still starting");
+        return manager;
+    }
+
+    @Override
+    public String ping() {
+        Manager manager = getIfReady();
+        return manager != null ? manager.ping() : "pong";
+    }
+
+    @NotNull
+    @Override
+    public List<io.raspberrywallet.contract.module.Module> getServerModules() {
+        return get().getServerModules();
+    }
+
+    @Override
+    public ModuleState getModuleState(@NotNull String moduleId) {
+        return get().getModuleState(moduleId);
+    }
+
+    @Override
+    public Response nextStep(@NotNull String moduleId, Map<String, String> inputMap) {
+        return get().nextStep(moduleId, inputMap);
+    }
+
+    @Override
+    public void restoreFromBackupPhrase(@NotNull List<String> mnemonicWords,
+                                        @NotNull Map<String, Map<String, String>> selectedModulesWithInputs,
+                                        int required) throws WalletNotInitialized, RequiredInputNotFound {
+        get().restoreFromBackupPhrase(mnemonicWords, selectedModulesWithInputs, required);
+    }
+
+    @Override
+    public WalletStatus getWalletStatus() {
+        return get().getWalletStatus();
+    }
+
+    @Override
+    public void unlockWallet(Map<String, Map<String, String>> moduleToInputsMap) throws WalletNotInitialized, IncorrectPasswordException {
+        get().unlockWallet(moduleToInputsMap);
+    }
+
+    @Override
+    public void loadWalletFromDisk(@NotNull Map<String, Map<String, String>> moduleToInputsMap) {
+        get().loadWalletFromDisk(moduleToInputsMap);
+    }
+
+    @Override
+    public boolean lockWallet() throws WalletNotInitialized, IncorrectPasswordException, IOException {
+        return get().lockWallet();
+    }
+
+    @NotNull
+    @Override
+    public String getCurrentReceiveAddress() throws WalletNotInitialized {
+        return get().getCurrentReceiveAddress();
+    }
+
+    @NotNull
+    @Override
+    public String getFreshReceiveAddress() throws WalletNotInitialized {
+        return get().getFreshReceiveAddress();
+    }
+
+    @NotNull
+    @Override
+    public String getEstimatedBalance() throws WalletNotInitialized {
+        return get().getEstimatedBalance();
+    }
+
+    @NotNull
+    @Override
+    public String getAvailableBalance() throws WalletNotInitialized {
+        return get().getAvailableBalance();
+    }
+
+    @Override
+    public void sendCoins(@NotNull String amount, @NotNull String recipientAddress) throws WalletNotInitialized {
+        get().sendCoins(amount, recipientAddress);
+    }
+
+    @Override
+    public List<TransactionView> getAllTransactions() throws WalletNotInitialized {
+        return get().getAllTransactions();
+    }
+
+    @Override
+    public TransactionPage getTransactions(@Nullable String cursor, int limit, @Nullable String address,
+                                           @Nullable TransactionDirection direction) throws WalletNotInitialized {
+        return get().getTransactions(cursor, limit, address, direction);
+    }
+
+    @NotNull
+    @Override
+    public String getCpuTemperature() {
+        return tempMonitor.call();
+    }
+
+    @Override
+    public void tap() {
+        Manager manager = getIfReady();
+        if (manager != null)
+            manager.tap();
+    }
+
+    @Override
+    public int getAutoLockRemainingSeconds() {
+        Manager manager = getIfReady();
+        return manager != null ? manager.getAutoLockRemainingSeconds() : 0;
+    }
+
+    @Override
+    public void setDatabasePassword(@NotNull String password) throws Exception {
+        get().setDatabasePassword(password);
+    }
+
+    @NotNull
+    @Override
+    public String[] getNetworkList() {
+        return new WifiScanner().call();
+    }
+
+    @NotNull
+    @Override
+    public Map<String, String> getWifiStatus() {
+        return new WifiStatus().call();
+    }
+
+    @NotNull
+    @Override
+    public Map<String, String> getWifiConfig() {
+        return wpaConfiguration.getAsMap();
+    }
+
+    @Override
+    public int setWifiConfig(Map<String, String> newConf) {
+        return wpaConfiguration.setFromMap(newConf);
+    }
+
+    @Override
+    public void uploadNewModule(File moduleFile, String moduleName) throws ModuleUploadException {
+        get().uploadNewModule(moduleFile, moduleName);
+    }
+
+    @Override
+    public void addBlockChainProgressListener(@NotNull Consumer<SyncProgress> listener) {
+        delegate.thenAccept(manager -> manager.addBlockChainProgressListener(listener));
+    }
+
+    @Nullable
+    @Override
+    public SyncProgress getSyncProgress() {
+        Manager manager = getIfReady();
+        return manager != null ? manager.getSyncProgress() : null;
+    }
+
+    @Override
+    public void addAutoLockChannelListener(@NotNull IntConsumer listener) {
+        delegate.thenAccept(manager -> manager.addAutoLockChannelListener(listener));
+    }
+
+    @Override
+    public void addBalanceListener(@NotNull Consumer<BalanceView> listener) {
+        delegate.thenAccept(manager -> manager.addBalanceListener(listener));
+    }
+
+    @Override
+    public void addTransactionListener(@NotNull Consumer<TransactionView> listener) {
+        delegate.thenAccept(manager -> manager.addTransactionListener(listener));
+    }
+}
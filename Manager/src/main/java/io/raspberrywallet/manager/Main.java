@@ -2,27 +2,34 @@ package io.raspberrywallet.manager;
 
 import com.stasbar.Logger;
 import io.raspberrywallet.contract.CommunicationChannel;
+import io.raspberrywallet.contract.StartupTimeline;
 import io.raspberrywallet.manager.bitcoin.Bitcoin;
+import io.raspberrywallet.manager.bitcoin.ScryptCalibrator;
 import io.raspberrywallet.manager.bitcoin.WalletCrypter;
 import io.raspberrywallet.manager.cli.Opts;
 import io.raspberrywallet.manager.database.Database;
 import io.raspberrywallet.manager.linux.TemperatureMonitor;
+import io.raspberrywallet.manager.linux.WPAConfiguration;
 import io.raspberrywallet.manager.modules.Module;
 import io.raspberrywallet.manager.modules.ModuleClassLoader;
 import io.raspberrywallet.server.KtorServer;
 import org.apache.commons.cli.CommandLine;
-import org.bitcoinj.store.BlockStoreException;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.raspberrywallet.manager.cli.CliUtils.parseArgs;
 
 public class Main {
 
-    public static void main(String... args) throws BlockStoreException, IOException {
+    private final static long SAVE_FLUSH_TIMEOUT_SECONDS = 30;
+    private final static int STARTUP_THREADS = 4;
+
+    public static void main(String... args) throws Exception {
+        StartupTimeline timeline = new StartupTimeline();
         CommandLine cmd = parseArgs(args);
 
         if (Opts.MOCK_MANAGER.isSet(cmd)) {
@@ -33,35 +40,78 @@ public class Main {
         CommunicationChannel communicationChannel = new CommunicationChannel();
 
         File yamlConfigFile = new File(Opts.CONFIG.getValue(cmd));
-        Configuration configuration = Configuration.fromYamlFile(yamlConfigFile);
-        Bitcoin bitcoin = new Bitcoin(configuration, new WalletCrypter(), communicationChannel);
-
-        List<Module> modules = ModuleClassLoader.getModules(configuration);
+        Configuration configuration = timeline.record("configuration", () -> Configuration.fromYamlFile(yamlConfigFile));
 
+        // serve frontend and diagnostics right away, calls needing the wallet answer 503 until the manager is ready
         TemperatureMonitor temperatureMonitor = new TemperatureMonitor();
+        DeferredManager deferredManager = new DeferredManager(temperatureMonitor, new WPAConfiguration());
+        timeline.record("http-server", () -> {
+            KtorServer ktorServer = new KtorServer(
+                    deferredManager,
+                    configuration.getServerConfig(),
+                    communicationChannel,
+                    timeline);
+            ktorServer.start();
+            return ktorServer;
+        });
 
-        Database db = new Database(configuration);
+        AtomicInteger startupThreads = new AtomicInteger();
+        ExecutorService startupExecutor = Executors.newFixedThreadPool(STARTUP_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Startup-" + startupThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // calibration measures the CPU, sharing it with other phases would settle on permanently weaker parameters
+            WalletCrypter walletCrypter = timeline.record("scrypt-calibration",
+                    () -> new WalletCrypter(ScryptCalibrator.resolve(configuration)));
 
-        Manager manager = new Manager(
-                configuration,
-                db,
-                modules,
-                bitcoin,
-                temperatureMonitor,
-                communicationChannel);
+            CompletableFuture<Bitcoin> bitcoin = phase(timeline, startupExecutor, "bitcoin",
+                    () -> new Bitcoin(configuration, walletCrypter, communicationChannel));
+            CompletableFuture<List<Module>> modules = phase(timeline, startupExecutor, "modules",
+                    () -> ModuleClassLoader.getModules(configuration));
+            CompletableFuture<Database> db = phase(timeline, startupExecutor, "database",
+                    () -> new Database(configuration));
 
-        KtorServer ktorServer = new KtorServer(
-                manager,
-                configuration.getServerConfig(),
-                communicationChannel);
+            CompletableFuture.allOf(bitcoin, modules, db).join();
 
-        prepareShutdownHook(bitcoin);
-        ktorServer.startBlocking();
+            Manager manager = timeline.record("manager", () -> new Manager(
+                    configuration,
+                    db.join(),
+                    modules.join(),
+                    bitcoin.join(),
+                    temperatureMonitor,
+                    communicationChannel));
+            prepareShutdownHook(bitcoin.join());
+            deferredManager.complete(manager);
+            timeline.mark("ready");
+            Logger.info("Started in " + timeline.getTotalMillis() + " ms");
+        } catch (Exception e) {
+            // keep serving, so the failed phase can be read from diagnostics
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            Logger.err("Startup failed: " + cause);
+            deferredManager.fail(cause);
+        } finally {
+            startupExecutor.shutdown();
+        }
+    }
+
+    private static <T> CompletableFuture<T> phase(StartupTimeline timeline, ExecutorService executor,
+                                                  String name, StartupTimeline.Step<T> step) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return timeline.record(name, step);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
     }
 
     private static void prepareShutdownHook(Bitcoin bitcoin) {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             Logger.info("Finishing...");
+            if (!bitcoin.getSaveScheduler().flush(SAVE_FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                Logger.err("Wallet save has not finished before shutdown");
             try {
                 Objects.requireNonNull(bitcoin.getPeerGroup()).stop();
             } catch (NullPointerException e) {
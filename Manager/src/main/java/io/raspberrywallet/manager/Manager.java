@@ -4,12 +4,14 @@ import com.stasbar.Logger;
 import io.raspberrywallet.contract.*;
 import io.raspberrywallet.contract.module.ModuleState;
 import io.raspberrywallet.manager.bitcoin.Bitcoin;
+import io.raspberrywallet.manager.common.ArrayDestroyer;
 import io.raspberrywallet.manager.common.StreamUtils;
+import io.raspberrywallet.manager.cryptography.crypto.algorithms.DerivedKeyCache;
 import io.raspberrywallet.manager.cryptography.crypto.exceptions.DecryptionException;
 import io.raspberrywallet.manager.cryptography.crypto.exceptions.EncryptionException;
-import io.raspberrywallet.manager.cryptography.sharedsecret.shamir.Shamir;
 import io.raspberrywallet.manager.cryptography.sharedsecret.shamir.ShamirException;
-import io.raspberrywallet.manager.cryptography.sharedsecret.shamir.ShamirKey;
+import io.raspberrywallet.manager.cryptography.sharedsecret.shamir.ShamirScheme;
+import io.raspberrywallet.manager.cryptography.sharedsecret.shamir.ShamirShares;
 import io.raspberrywallet.manager.database.Database;
 import io.raspberrywallet.manager.database.KeyPartEntity;
 import io.raspberrywallet.manager.linux.TemperatureMonitor;
@@ -22,14 +24,14 @@ import kotlin.text.Charsets;
 import lombok.Getter;
 import org.bitcoinj.core.Sha256Hash;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.math.BigInteger;
 import java.net.MalformedURLException;
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.DoubleConsumer;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
@@ -37,6 +39,11 @@ import static java.util.stream.Collectors.toList;
 
 public class Manager implements io.raspberrywallet.contract.Manager {
 
+    /**
+     * Upper bound of modules decrypting their key parts concurrently during unlock
+     */
+    private static final int MAX_UNLOCK_THREADS = 4;
+
     /**
      * Module id -> Module instance
      */
@@ -53,11 +60,15 @@ public class Manager implements io.raspberrywallet.contract.Manager {
 
     @NotNull
     private final CommunicationChannel frontendChannel;
-    private AutoLockTimer autoLockTask;
-    private Timer timer;
+    @NotNull
+    private final ScheduledExecutorService scheduler;
+    @NotNull
+    private final AutoLock autoLock;
     private Configuration configuration;
     @NotNull
     private final Runnable onLockTriggered;
+    @NotNull
+    private final ExecutorService unlockExecutor;
 
     Manager(@NotNull Configuration configuration,
             @NotNull Database database,
@@ -72,7 +83,17 @@ public class Manager implements io.raspberrywallet.contract.Manager {
         this.tempMonitor = tempMonitor;
         this.wpaConfiguration = new WPAConfiguration();
         this.configuration = configuration;
+        this.unlockExecutor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(modules.size(), MAX_UNLOCK_THREADS)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "module-unlock");
+                    thread.setDaemon(true);
+                    return thread;
+                });
         onLockTriggered = () -> {
+            // locked meanwhile by other means, modules have no inputs to lock it again
+            if (getWalletStatus() != WalletStatus.DECRYPTED)
+                return;
             frontendChannel.info("Autolock triggered");
             try {
                 lockWallet();
@@ -84,15 +105,16 @@ public class Manager implements io.raspberrywallet.contract.Manager {
                 frontendChannel.error("AutoLock failed: " + e.getMessage());
             }
             clearModuleInputs();
+            DerivedKeyCache.getInstance().destroy();
         };
-        restartAutoLockTask();
-    }
-
-    private void restartAutoLockTask() {
-        if (timer != null) timer.cancel();
-        timer = new Timer();
-        autoLockTask = new AutoLockTimer(configuration.getAutoLockSeconds(), timer, onLockTriggered);
-        timer.scheduleAtFixedRate(autoLockTask, Duration.ofSeconds(1).toMillis(), Duration.ofSeconds(1).toMillis());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Manager-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.autoLock = new AutoLock(Duration.ofSeconds(configuration.getAutoLockSeconds()),
+                Duration.ofSeconds(configuration.getAutoLockCountdownSeconds()), scheduler, onLockTriggered);
+        autoLock.start();
     }
 
     @Override
@@ -142,23 +164,23 @@ public class Manager implements io.raspberrywallet.contract.Manager {
 
 
         byte[] seed = String.join(" ", mnemonicCode).getBytes(Charsets.UTF_8);
-        int numBits = seed.length * 8; //We need bits not bytes
         try {
-            BigInteger[] params = Shamir.generateParams(required, numBits, seed);
-            ShamirKey[] keys = Shamir.generateKeys(modulesToDecrypt.size(), required, numBits, params);
+            ShamirShares shares = configuration.getShamirScheme().split(seed, modulesToDecrypt.size(), required);
+            List<byte[]> keyParts = shares.getKeyParts();
 
             List<KeyPartEntity> keyPartEntities = new ArrayList<>();
-            for (int i = 0; i < keys.length; i++) {
+            for (int i = 0; i < keyParts.size(); i++) {
                 Module module = modulesToDecrypt.get(i);
                 module.setInputs(selectedModulesWithInputs.get(module.getId()));
                 KeyPartEntity keyPartEntity = new KeyPartEntity();
-                keyPartEntity.setPayload(module.encryptKeyPart(keys[i].toByteArray()));
+                keyPartEntity.setPayload(module.encryptKeyPart(keyParts.get(i)));
                 keyPartEntity.setModule(module.getId());
                 keyPartEntities.add(keyPartEntity);
             }
-            database.addAllKeyParts(keyPartEntities);
+            database.addAllKeyParts(keyPartEntities, required, shares.getParameters());
 
             bitcoin.setupWalletFromMnemonic(mnemonicCode, getPrivateKeyHash());
+            autoLock.arm();
 
         } catch (ShamirException | EncryptionException | InternalModuleException e) {
             e.printStackTrace();
@@ -188,6 +210,7 @@ public class Manager implements io.raspberrywallet.contract.Manager {
         fillModulesWithInputs(moduleToInputsMap);
         String password = getPrivateKeyHash();
         bitcoin.decryptWallet(password);
+        autoLock.arm();
     }
 
     @Override
@@ -195,6 +218,7 @@ public class Manager implements io.raspberrywallet.contract.Manager {
         fillModulesWithInputs(moduleToInputsMap);
         String password = getPrivateKeyHash();
         bitcoin.setupWalletFromFile(password);
+        autoLock.arm();
     }
 
     private void fillModulesWithInputs(@NotNull Map<String, Map<String, String>> moduleToInputsMap) {
@@ -212,11 +236,12 @@ public class Manager implements io.raspberrywallet.contract.Manager {
         String password = getPrivateKeyHash();
 
         try {
-            bitcoin.saveEncryptedWallet(password);
-            bitcoin.encryptWallet(password);
+            bitcoin.lockWallet(password);
             return true;
         } finally {
+            autoLock.disarm();
             clearModuleInputs();
+            DerivedKeyCache.getInstance().destroy();
         }
     }
 
@@ -224,29 +249,70 @@ public class Manager implements io.raspberrywallet.contract.Manager {
         modules.values().forEach(Module::clearInputs);
     }
 
+    /**
+     * Decrypts key parts of all modules concurrently and merges them as soon as
+     * the required number of key parts has been recovered, remaining decryptions are cancelled.
+     * When the required number is unknown, all modules are awaited.
+     */
     private byte[] getPrivateKeyFromModules() {
-        ShamirKey[] shamirKeys = modules.values().stream()
-                .map(module -> {
-                    try {
-                        Optional<KeyPartEntity> keyPartEntity = database.getKeypartForModuleId(module.getId());
-                        if (!keyPartEntity.isPresent())  // could not find module with this module.getId()
-                            return null;
-
-                        KeyPartEntity dbEntity = keyPartEntity.get();
-                        return module.decryptKeyPart(dbEntity.getPayload());
-                    } catch (InternalModuleException | DecryptionException e) {
-                        frontendChannel.error("Unlock module exception");
-                        return null;
-                    } catch (RequiredInputNotFound e) {
-                        frontendChannel.info("Required input not set for " + module.getId());
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .map(ShamirKey::fromByteArray)
-                .toArray(ShamirKey[]::new);
+        final int required = database.getRequiredKeyParts();
+        CompletionService<byte[]> completionService = new ExecutorCompletionService<>(unlockExecutor);
+        List<Future<byte[]>> pending = modules.values().stream()
+                .map(module -> completionService.submit(() -> decryptKeyPart(module)))
+                .collect(toList());
+
+        List<byte[]> keyParts = new ArrayList<>();
+        try {
+            for (int i = 0; i < pending.size() && (required <= 0 || keyParts.size() < required); i++) {
+                byte[] keyPart = takeKeyPart(completionService);
+                if (keyPart != null)
+                    keyParts.add(keyPart);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
 
-        return Shamir.calculateLagrange(shamirKeys);
+        if (keyParts.isEmpty())
+            throw new IllegalStateException("Could not decrypt any key part");
+        try {
+            return ShamirScheme.of(keyParts.get(0)).combine(keyParts, database.getShamirParameters());
+        } catch (ShamirException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } finally {
+            keyParts.forEach(ArrayDestroyer::destroy);
+        }
+    }
+
+    @Nullable
+    private byte[] takeKeyPart(CompletionService<byte[]> completionService) throws InterruptedException {
+        try {
+            return completionService.take().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            frontendChannel.error("Unlock module exception");
+            return null;
+        }
+    }
+
+    @Nullable
+    private byte[] decryptKeyPart(Module module) {
+        try {
+            Optional<KeyPartEntity> keyPartEntity = database.getKeypartForModuleId(module.getId());
+            if (!keyPartEntity.isPresent())  // could not find module with this module.getId()
+                return null;
+
+            KeyPartEntity dbEntity = keyPartEntity.get();
+            return module.decryptKeyPart(dbEntity.getPayload());
+        } catch (InternalModuleException | DecryptionException e) {
+            frontendChannel.error("Unlock module exception");
+            return null;
+        } catch (RequiredInputNotFound e) {
+            frontendChannel.info("Required input not set for " + module.getId());
+            return null;
+        }
     }
 
 
@@ -287,6 +353,13 @@ public class Manager implements io.raspberrywallet.contract.Manager {
     public List<TransactionView> getAllTransactions() throws WalletNotInitialized {
         return bitcoin.getAllTransactions();
     }
+
+    @Override
+    public TransactionPage getTransactions(@Nullable String cursor, int limit, @Nullable String address,
+                                           @Nullable TransactionDirection direction) throws WalletNotInitialized {
+        return bitcoin.getTransactions(cursor, limit, address, direction);
+    }
+
     /*
      * Utilities
      */
@@ -299,7 +372,12 @@ public class Manager implements io.raspberrywallet.contract.Manager {
 
     @Override
     public void tap() {
-        autoLockTask.tap();
+        autoLock.tap();
+    }
+
+    @Override
+    public int getAutoLockRemainingSeconds() {
+        return autoLock.getRemainingSeconds();
     }
 
     @Override
@@ -339,10 +417,26 @@ public class Manager implements io.raspberrywallet.contract.Manager {
     }
 
     @Override
-    public void addBlockChainProgressListener(@NotNull DoubleConsumer listener) {
+    public void addBlockChainProgressListener(@NotNull Consumer<SyncProgress> listener) {
         bitcoin.addBlockChainProgressListener(listener);
     }
 
+    @Nullable
+    @Override
+    public SyncProgress getSyncProgress() {
+        return bitcoin.getSyncProgress();
+    }
+
+    @Override
+    public void addBalanceListener(@NotNull Consumer<BalanceView> listener) {
+        bitcoin.addBalanceListener(listener);
+    }
+
+    @Override
+    public void addTransactionListener(@NotNull Consumer<TransactionView> listener) {
+        bitcoin.addTransactionListener(listener);
+    }
+
     public void uploadNewModule(File file, String fileName) throws ModuleUploadException {
 
         //Verify in /tmp
@@ -381,6 +475,6 @@ public class Manager implements io.raspberrywallet.contract.Manager {
 
     @Override
     public void addAutoLockChannelListener(@NotNull IntConsumer autoLockChannelListener) {
-        autoLockTask.setAutoLockChannelListener(autoLockChannelListener);
+        autoLock.setAutoLockChannelListener(autoLockChannelListener);
     }
 }
@@ -4,14 +4,17 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.stasbar.Logger;
+import io.raspberrywallet.contract.BalanceView;
 import io.raspberrywallet.contract.CommunicationChannel;
 import io.raspberrywallet.contract.IncorrectPasswordException;
+import io.raspberrywallet.contract.SyncProgress;
+import io.raspberrywallet.contract.TransactionDirection;
+import io.raspberrywallet.contract.TransactionPage;
 import io.raspberrywallet.contract.TransactionView;
 import io.raspberrywallet.contract.WalletNotInitialized;
 import io.raspberrywallet.manager.Configuration;
 import lombok.Getter;
 import org.bitcoinj.core.*;
-import org.bitcoinj.core.listeners.DownloadProgressTracker;
 import org.bitcoinj.net.discovery.DnsDiscovery;
 import org.bitcoinj.params.MainNetParams;
 import org.bitcoinj.params.TestNet3Params;
@@ -33,14 +36,11 @@ import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileLock;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Date;
 import java.util.List;
 import java.util.concurrent.Executors;
-import java.util.function.DoubleConsumer;
-
-import static java.util.stream.Collectors.toList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Class representing Bitcoin network, IO, key management API,
@@ -48,6 +48,7 @@ import static java.util.stream.Collectors.toList;
  */
 public class Bitcoin {
     private final static String DIRECTORY_NAME = "bitcoin";
+    private final static long SAVE_FLUSH_TIMEOUT_SECONDS = 30;
 
     private final File bitcoinRootDirectory;
     private final String walletFileName;
@@ -66,8 +67,16 @@ public class Bitcoin {
     private PeerGroup peerGroup;
     private SPVBlockStore blockStore;
     private InputStream checkpoints;
-    private DoubleConsumer blockchainProgressListener;
+    @Nullable
+    private volatile Consumer<SyncProgress> blockchainProgressListener;
+    @Nullable
+    private volatile SyncProgressTracker syncProgressTracker;
+    private Consumer<BalanceView> balanceListener;
+    private final AtomicReference<BalanceView> lastBalance = new AtomicReference<>();
     private final WalletCrypter walletCrypter;
+    @Getter
+    private final WalletSaveScheduler saveScheduler;
+    private final TransactionIndex transactionIndex;
     private CommunicationChannel frontendChannel;
 
     public Bitcoin(Configuration configuration, @NotNull WalletCrypter walletCrypter, CommunicationChannel frontendChannel) throws BlockStoreException, IOException {
@@ -83,6 +92,8 @@ public class Bitcoin {
 
         this.walletFile = Paths.get(bitcoinRootDirectory.getAbsolutePath(), walletFileName + ".wallet").toFile();
         this.blockStoreFile = Paths.get(bitcoinRootDirectory.getAbsolutePath(), walletFileName + ".spvchain").toFile();
+        this.saveScheduler = new WalletSaveScheduler(walletFile);
+        this.transactionIndex = new TransactionIndex(params);
         if (isChainFileLocked())
             throw new IllegalStateException("This application is already running and cannot be started twice. " +
                     "\nPlease check what process is using blockstore by executing" +
@@ -158,6 +169,8 @@ public class Bitcoin {
     void setupWalletFromFile(@NotNull String password, boolean blocking) {
         Runnable setupWalletFromBackup = () -> {
             try {
+                // file has to contain the latest requested save
+                saveScheduler.flush(SAVE_FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
                 wallet = Wallet.loadFromFile(walletFile);
 
                 if (!wallet.isEncrypted()) {
@@ -188,12 +201,22 @@ public class Bitcoin {
      * @param wallet wallet to index transactions for
      */
     private void synchronizeWalletNonBlocking(final Wallet wallet, @Nullable String password, boolean blocking) throws IOException {
+        transactionIndex.attach(wallet);
+        // coins received and sent end up as wallet changes too
+        wallet.addChangeEventListener(this::publishBalance);
+        publishBalance(wallet);
         BlockChain chain;
         try {
             chain = new BlockChain(params, blockStore);
         } catch (BlockStoreException e) {
             throw new IOException(e);
         }
+        // samples of the previous peer group would be stale
+        SyncProgressTracker previousTracker = syncProgressTracker;
+        if (previousTracker != null) {
+            previousTracker.stop();
+            syncProgressTracker = null;
+        }
         peerGroup = new PeerGroup(params, chain);
         peerGroup.setUserAgent("RaspberryWallet", "1.0");
         peerGroup.addPeerDiscovery(new DnsDiscovery(params));
@@ -219,27 +242,16 @@ public class Bitcoin {
             @Override
             public void onSuccess(@Nullable Object result) {
                 completeExtensionInitiations(peerGroup, wallet);
-                DownloadProgressTracker listener = new DownloadProgressTracker() {
-                    @Override
-                    protected void progress(double pct, int blocksSoFar, Date date) {
-                        super.progress(pct, blocksSoFar, date);
-                        Logger.d("Progress " + pct + "%");
-                        if (blockchainProgressListener != null) {
-                            blockchainProgressListener.accept(pct);
-                            Logger.d("blockchainProgressListener not null, sending " + pct);
-                        }
-                    }
-
-                    @Override
-                    protected void doneDownload() {
-                        afterSynchronizationComplete.run();
-                    }
-                };
                 if (blocking) {
                     peerGroup.downloadBlockChain();
                     afterSynchronizationComplete.run();
-                } else
+                } else {
+                    SyncProgressTracker listener = new SyncProgressTracker(bitcoinConfig.getSyncProgressIntervalMillis(),
+                            () -> peerGroup.numConnectedPeers(), Bitcoin.this::publishSyncProgress,
+                            afterSynchronizationComplete);
+                    syncProgressTracker = listener;
                     peerGroup.startBlockChainDownload(listener);
+                }
             }
 
             @Override
@@ -263,7 +275,7 @@ public class Bitcoin {
     }
 
     /**
-     * This method encrypt wallet, saves it onto disk and decrypt it back so it become again usable
+     * This method encrypt wallet, schedules saving it onto disk and decrypt it back so it become again usable
      *
      * @param password used to encrypt wallet before saving onto disk
      * @throws IOException          when the problem with saving wallet occurs
@@ -275,11 +287,28 @@ public class Bitcoin {
 
     private void saveEncryptedWallet(@NotNull Wallet wallet, String password) throws IOException, IncorrectPasswordException {
         encryptWallet(wallet, password);
-        wallet.saveToFile(walletFile);
-        Logger.d("Saved wallet to: " + walletFile.getAbsolutePath());
+        saveScheduler.requestSave(wallet);
         decryptWallet(wallet, password);
     }
 
+    /**
+     * Encrypts the wallet, schedules saving it onto disk and leaves it encrypted. Retained key is wiped afterwards,
+     * so with the key retained since unlocking no derivation is needed.
+     *
+     * @param password used to encrypt wallet before saving onto disk
+     * @throws IOException          when the problem with saving wallet occurs
+     * @throws WalletNotInitialized when you try to lock not initialized wallet
+     */
+    public void lockWallet(String password) throws IOException, WalletNotInitialized, IncorrectPasswordException {
+        Wallet wallet = getWallet();
+        try {
+            encryptWallet(wallet, password);
+            saveScheduler.requestSave(wallet);
+        } finally {
+            walletCrypter.destroy();
+        }
+    }
+
     public void encryptWallet(String password) throws WalletNotInitialized, IncorrectPasswordException {
         encryptWallet(getWallet(), password);
     }
@@ -342,78 +371,17 @@ public class Bitcoin {
      * @return list of transactions related with this wallet
      */
     public List<TransactionView> getAllTransactions() throws WalletNotInitialized {
-        final Wallet wallet = getWallet();
-        final List<Transaction> transactions = new ArrayList<>(wallet.getTransactions(false));
-
-        return transactions.stream()
-                .map(tx -> mapTransactionToTransactionView(wallet, tx))
-                .sorted(Comparator.comparing(transactionView -> -transactionView.getCreationTimestamp()))
-                .collect(toList());
+        ensureWalletInitialized();
+        return transactionIndex.getAll();
     }
 
     /**
-     * @param wallet final wallet entity
-     * @param tx     BitcoinJ specific transaction entity
-     * @return our domain specific transaction entity
+     * @return page of transactions related with this wallet, see {@link TransactionIndex#getPage}
      */
-    @NotNull
-    private TransactionView mapTransactionToTransactionView(@NotNull final Wallet wallet, @NotNull Transaction tx) {
-        // SHA256(Transaction) in hex encoding
-        final String hashAsString = tx.getHashAsString();
-        // The earliest time at which the transaction was seen
-        final long creationTimestamp = tx.getUpdateTime().getTime();
-
-        // There are different ways of revealing address depending on the script type
-        // 1. P2PKH (Pay to public key hash)
-        // 2. P2SH (Pay to script hash)
-        // 3. P2PK (Pay to public key)
-        // 4. Segregated witness outputs
-        // 5. m-of-n bare multisig
-
-        // Collect input addresses in user friendly Base58 form
-        final List<String> inputAddresses = tx.getInputs().stream()
-                .map(transactionInput -> {
-                    if (transactionInput.isCoinBase()) return "Coinbase";
-                    else try {
-                        return new Address(params,
-                                Utils.sha256hash160(transactionInput
-                                        .getScriptSig()
-                                        .getPubKey()))
-                                .toBase58();
-
-                    } catch (ScriptException e1) {
-                        return "N/A or SegWit";
-                    }
-                }).collect(toList());
-
-
-        // Collect output addresses in user friendly Base58 form
-        final List<String> outputAddresses = tx.getOutputs().stream()
-                .map(transactionOutput ->
-                        transactionOutput
-                                .getScriptPubKey().getToAddress(params).toBase58()
-                ).collect(toList());
-
-        final String amountFromMe = tx.getValueSentFromMe(wallet).toFriendlyString();
-        final String amountToMe = tx.getValueSentToMe(wallet).toFriendlyString();
-
-
-        // Fee is the difference between outputs and inputs
-        long fee = Math.max(0, tx.getInputSum().getValue() - tx.getOutputSum().getValue());
-        final String feeFormatted = Coin.valueOf(fee).toFriendlyString();
-
-        // How many blocks have been placed on top of this transaction's block
-        final int confirmations = tx.getConfidence().getDepthInBlocks();
-        return new TransactionView(
-                hashAsString,
-                creationTimestamp,
-                inputAddresses,
-                outputAddresses,
-                amountFromMe,
-                amountToMe,
-                feeFormatted,
-                confirmations
-        );
+    public TransactionPage getTransactions(@Nullable String cursor, int limit, @Nullable String address,
+                                           @Nullable TransactionDirection direction) throws WalletNotInitialized {
+        ensureWalletInitialized();
+        return transactionIndex.getPage(cursor, limit, address, direction);
     }
 
 
@@ -461,7 +429,47 @@ public class Bitcoin {
         }
     }
 
-    public void addBlockChainProgressListener(DoubleConsumer blockchainProgressListener) {
+    public void addBlockChainProgressListener(Consumer<SyncProgress> blockchainProgressListener) {
         this.blockchainProgressListener = blockchainProgressListener;
     }
+
+    private void publishSyncProgress(SyncProgress progress) {
+        Consumer<SyncProgress> listener = blockchainProgressListener;
+        if (listener != null)
+            listener.accept(progress);
+    }
+
+    /**
+     * @return latest sample of blockchain synchronization progress, null before synchronization started
+     */
+    @Nullable
+    public SyncProgress getSyncProgress() {
+        SyncProgressTracker tracker = syncProgressTracker;
+        return tracker != null ? tracker.getLastProgress() : null;
+    }
+
+    /**
+     * Notifies the listener only when balances differ from the previously published ones,
+     * depth changes alone do not produce updates
+     */
+    private void publishBalance(Wallet wallet) {
+        BalanceView balance = new BalanceView(
+                wallet.getBalance(Wallet.BalanceType.ESTIMATED).toFriendlyString(),
+                wallet.getBalance(Wallet.BalanceType.AVAILABLE).toFriendlyString());
+        BalanceView previous = lastBalance.getAndSet(balance);
+        Consumer<BalanceView> listener = balanceListener;
+        if (listener != null && !balance.equals(previous))
+            listener.accept(balance);
+    }
+
+    public void addBalanceListener(Consumer<BalanceView> balanceListener) {
+        this.balanceListener = balanceListener;
+        BalanceView balance = lastBalance.get();
+        if (balance != null)
+            balanceListener.accept(balance);
+    }
+
+    public void addTransactionListener(Consumer<TransactionView> transactionListener) {
+        transactionIndex.setUpdateListener(transactionListener);
+    }
 }
@@ -0,0 +1,70 @@
+package io.raspberrywallet.manager.bitcoin;
+
+import io.raspberrywallet.manager.common.ArrayDestroyer;
+import io.raspberrywallet.manager.common.interfaces.Destroyable;
+import org.bitcoinj.crypto.KeyCrypterScrypt;
+import org.spongycastle.crypto.params.KeyParameter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Scrypt derived wallet key together with the crypter (scrypt parameters and salt) it was derived with.
+ * The password is kept only as its SHA-256 digest, to recognize it without deriving the key again.
+ */
+class RetainedKey implements Destroyable {
+
+    private final static String PASSWORD_DIGEST_ALGORITHM = "SHA-256";
+
+    private final KeyCrypterScrypt keyCrypter;
+    private final KeyParameter aesKey;
+    private final byte[] passwordDigest;
+
+    RetainedKey(KeyCrypterScrypt keyCrypter, KeyParameter aesKey, String password) {
+        this.keyCrypter = keyCrypter;
+        this.aesKey = aesKey;
+        this.passwordDigest = digest(password);
+    }
+
+    KeyCrypterScrypt getKeyCrypter() {
+        return keyCrypter;
+    }
+
+    KeyParameter getAesKey() {
+        return aesKey;
+    }
+
+    boolean matches(String password) {
+        byte[] digest = digest(password);
+        boolean matches = MessageDigest.isEqual(passwordDigest, digest);
+        ArrayDestroyer.destroy(digest);
+        return matches;
+    }
+
+    /**
+     * @return true if the key was derived with the same scrypt parameters and salt as the given crypter uses
+     */
+    boolean matches(KeyCrypterScrypt keyCrypter) {
+        return this.keyCrypter.getScryptParameters().equals(keyCrypter.getScryptParameters());
+    }
+
+    private static byte[] digest(String password) {
+        try {
+            return MessageDigest.getInstance(PASSWORD_DIGEST_ALGORITHM)
+                    .digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // this shouldn't happen, SHA-256 is required on every Java platform
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Wipes the key in place, KeyParameter exposes its internal array
+     */
+    @Override
+    public void destroy() {
+        ArrayDestroyer.destroy(aesKey.getKey());
+        ArrayDestroyer.destroy(passwordDigest);
+    }
+}
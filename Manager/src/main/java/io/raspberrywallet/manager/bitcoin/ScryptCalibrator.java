@@ -0,0 +1,149 @@
+package io.raspberrywallet.manager.bitcoin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.google.protobuf.ByteString;
+import com.stasbar.Logger;
+import io.raspberrywallet.manager.Configuration;
+import org.bitcoinj.crypto.KeyCrypterScrypt;
+import org.bitcoinj.wallet.Protos;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Picks scrypt parameters for the running device. Cost of a derivation grows linearly with N * r * p
+ * and its memory with N * r, so a cheap derivation is measured and N, then p, are scaled up
+ * to the target latency without exceeding the memory ceiling.
+ */
+public class ScryptCalibrator {
+
+    /**
+     * Calibrated parameters are stored here, under the base path, so calibration runs only at first setup
+     */
+    private final static String CALIBRATION_FILE_NAME = "scrypt.yaml";
+
+    private final static int R = 8;
+    /**
+     * Defaults of bitcoinj, parameters are never calibrated below them however slow the device is
+     */
+    private final static int MIN_N = 1 << 14;
+    private final static int MAX_N = 1 << 20;
+    private final static int MAX_P = 16;
+
+    private final static int PROBE_N = 1 << 10;
+    private final static int PROBE_ROUNDS = 5;
+    private final static String PROBE_PASSWORD = "calibration";
+
+    private ScryptCalibrator() {
+    }
+
+    /**
+     * Fills scrypt parameters of the configuration, either from the configuration itself,
+     * from the previous calibration or by calibrating and storing the result.
+     *
+     * @return parameters without salt, every encryption picks its own, so the message is only partially built
+     */
+    public static Protos.ScryptParameters resolve(Configuration configuration) {
+        Configuration.ScryptConfig scryptConfig = configuration.getScryptConfig();
+        if (!scryptConfig.isCalibrated()) {
+            File calibrationFile = new File(configuration.getBasePathPrefix(), CALIBRATION_FILE_NAME);
+            ObjectMapper objectMapper = new ObjectMapper(new YAMLFactory());
+            Configuration.ScryptConfig stored = read(objectMapper, calibrationFile);
+
+            if (stored != null && stored.isCalibrated() && stored.getTargetMillis() == scryptConfig.getTargetMillis()
+                    && stored.getMaxMemoryMb() == scryptConfig.getMaxMemoryMb()) {
+                copyParameters(stored, scryptConfig);
+            } else {
+                copyParameters(calibrate(scryptConfig.getTargetMillis(), scryptConfig.getMaxMemoryMb()), scryptConfig);
+                try {
+                    objectMapper.writeValue(calibrationFile, scryptConfig);
+                } catch (IOException e) {
+                    Logger.err("Failed to store scrypt calibration: " + e.getMessage());
+                }
+            }
+        }
+
+        return Protos.ScryptParameters.newBuilder()
+                .setN(scryptConfig.getN())
+                .setR(scryptConfig.getR())
+                .setP(scryptConfig.getP())
+                .buildPartial();
+    }
+
+    private static Configuration.ScryptConfig read(ObjectMapper objectMapper, File calibrationFile) {
+        if (!calibrationFile.exists())
+            return null;
+        try {
+            return objectMapper.readValue(calibrationFile, Configuration.ScryptConfig.class);
+        } catch (IOException e) {
+            Logger.err("Failed to read scrypt calibration: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void copyParameters(Configuration.ScryptConfig from, Configuration.ScryptConfig to) {
+        to.setN(from.getN());
+        to.setR(from.getR());
+        to.setP(from.getP());
+    }
+
+    /**
+     * @param targetMillis time a derivation should take
+     * @param maxMemoryMb  memory a derivation may use
+     * @return calibrated N, r and p, never below bitcoinj defaults
+     */
+    public static Configuration.ScryptConfig calibrate(int targetMillis, int maxMemoryMb) {
+        double probeMillis = measure(PROBE_N, R, 1, PROBE_ROUNDS);
+        double millisPerN = probeMillis / PROBE_N;
+
+        // scrypt allocates 128 * r * N bytes
+        long memoryLimitN = ((long) maxMemoryMb << 20) / (128L * R);
+        int n = MIN_N;
+        while (n < MAX_N && 2L * n <= memoryLimitN && 2 * n * millisPerN <= targetMillis)
+            n <<= 1;
+
+        int p = 1;
+        while (p < MAX_P && (p + 1) * n * millisPerN <= targetMillis)
+            p++;
+
+        // the probe fits into caches, larger N can be slower per unit than estimated
+        double measured = measure(n, R, p, 1);
+        while (measured > targetMillis * 1.5 && (p > 1 || n > MIN_N)) {
+            if (p > 1)
+                p = Math.max(1, (int) (p * targetMillis / measured));
+            else
+                n >>= 1;
+            measured = measure(n, R, p, 1);
+        }
+
+        Logger.info(String.format("Scrypt calibrated to N=%d r=%d p=%d, %.0f ms per derivation", n, R, p, measured));
+        Configuration.ScryptConfig calibrated = new Configuration.ScryptConfig();
+        calibrated.setTargetMillis(targetMillis);
+        calibrated.setMaxMemoryMb(maxMemoryMb);
+        calibrated.setN(n);
+        calibrated.setR(R);
+        calibrated.setP(p);
+        return calibrated;
+    }
+
+    /**
+     * @return the fastest of the rounds in milliseconds
+     */
+    private static double measure(int n, int r, int p, int rounds) {
+        KeyCrypterScrypt scrypt = new KeyCrypterScrypt(Protos.ScryptParameters.newBuilder()
+                .setN(n)
+                .setR(r)
+                .setP(p)
+                .setSalt(ByteString.copyFrom(KeyCrypterScrypt.randomSalt()))
+                .build());
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            scrypt.deriveKey(PROBE_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+}
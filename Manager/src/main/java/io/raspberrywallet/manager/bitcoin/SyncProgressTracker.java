@@ -0,0 +1,150 @@
+package io.raspberrywallet.manager.bitcoin;
+
+import com.stasbar.Logger;
+import io.raspberrywallet.contract.SyncProgress;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.FilteredBlock;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.listeners.DownloadProgressTracker;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Blockchain download progress sampled at a fixed rate on its own thread, from the start of the download
+ * until it is done or the tracker is stopped. Peer threads only store the number of blocks left,
+ * so neither logging nor listeners slow the download down. Samples without progress are not published.
+ */
+class SyncProgressTracker extends DownloadProgressTracker {
+    /**
+     * Weight of the latest sample in exponentially smoothed download rate
+     */
+    private final static double RATE_SMOOTHING = 0.3;
+
+    private final long intervalMillis;
+    private final IntSupplier peerCount;
+    private final Consumer<SyncProgress> listener;
+    private final Runnable onDone;
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SyncProgress");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile int totalBlocks = -1;
+    private volatile int blocksLeft = -1;
+    @Nullable
+    private volatile SyncProgress lastProgress;
+
+    // accessed by the sampler thread only
+    private int lastBlocksLeft = -1;
+    private long lastSampleMillis;
+    private double blocksPerSecond;
+
+    /**
+     * @param intervalMillis interval between progress samples
+     * @param peerCount      number of connected peers
+     * @param listener       receives samples on the sampler thread
+     * @param onDone         run on peer thread when the blockchain is downloaded
+     */
+    SyncProgressTracker(long intervalMillis, @NotNull IntSupplier peerCount, @NotNull Consumer<SyncProgress> listener,
+                        @NotNull Runnable onDone) {
+        this.intervalMillis = intervalMillis;
+        this.peerCount = peerCount;
+        this.listener = listener;
+        this.onDone = onDone;
+    }
+
+    @Override
+    protected void startDownload(int blocks) {
+        super.startDownload(blocks);
+        totalBlocks = blocks;
+        blocksLeft = blocks;
+        try {
+            sampler.scheduleAtFixedRate(this::sampleNow, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // stopped before the download started
+        }
+    }
+
+    @Override
+    public void onBlocksDownloaded(Peer peer, Block block, @Nullable FilteredBlock filteredBlock, int blocksLeft) {
+        this.blocksLeft = blocksLeft;
+        super.onBlocksDownloaded(peer, block, filteredBlock, blocksLeft);
+    }
+
+    /**
+     * Percentage is derived from blocks left when sampling, nothing to do per block
+     */
+    @Override
+    protected void progress(double pct, int blocksSoFar, Date date) {
+    }
+
+    @Override
+    protected void doneDownload() {
+        try {
+            sampler.execute(() -> {
+                blocksLeft = 0;
+                sampleNow();
+                sampler.shutdown();
+            });
+        } catch (RejectedExecutionException e) {
+            // stopped, nobody is interested in the final sample
+        }
+        onDone.run();
+    }
+
+    /**
+     * Stops sampling, e.g. when the peer group this tracker listens to is replaced
+     */
+    void stop() {
+        sampler.shutdownNow();
+    }
+
+    boolean isStopped() {
+        return sampler.isShutdown();
+    }
+
+    @Nullable
+    SyncProgress getLastProgress() {
+        return lastProgress;
+    }
+
+    private void sampleNow() {
+        try {
+            sample(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+        } catch (RuntimeException e) {
+            // exception would cancel further sampling
+            Logger.err("Failed to publish sync progress " + e.getMessage());
+        }
+    }
+
+    void sample(long nowMillis) {
+        int left = blocksLeft;
+        int total = totalBlocks;
+        if (left < 0 || total <= 0)
+            return;
+
+        boolean changed = left != lastBlocksLeft;
+        if (lastBlocksLeft >= 0 && nowMillis > lastSampleMillis) {
+            double rate = (lastBlocksLeft - left) * 1000.0 / (nowMillis - lastSampleMillis);
+            blocksPerSecond = RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * blocksPerSecond;
+        }
+        lastBlocksLeft = left;
+        lastSampleMillis = nowMillis;
+
+        long etaSeconds = left == 0 ? 0 : blocksPerSecond > 0 ? Math.round(left / blocksPerSecond) : -1;
+        SyncProgress progress = new SyncProgress(100.0 * (total - left) / total, left, blocksPerSecond,
+                etaSeconds, peerCount.getAsInt());
+        lastProgress = progress;
+        if (changed)
+            listener.accept(progress);
+    }
+}
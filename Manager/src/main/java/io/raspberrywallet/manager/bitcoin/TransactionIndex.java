@@ -0,0 +1,392 @@
+package io.raspberrywallet.manager.bitcoin;
+
+import io.raspberrywallet.contract.TransactionDirection;
+import io.raspberrywallet.contract.TransactionPage;
+import io.raspberrywallet.contract.TransactionView;
+import org.bitcoinj.core.*;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+import org.bitcoinj.wallet.listeners.WalletChangeEventListener;
+import org.bitcoinj.wallet.listeners.WalletCoinsReceivedEventListener;
+import org.bitcoinj.wallet.listeners.WalletCoinsSentEventListener;
+import org.bitcoinj.wallet.listeners.WalletReorganizeEventListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Transactions of a wallet ordered from the newest, kept up to date by wallet listeners.
+ * Addresses, amounts and fee are computed once per transaction, secondary indexes by address and direction
+ * let filtered pages be read without scanning the whole history, so a page costs O(page size + log n).
+ *
+ * TransactionView of every transaction is memoized. Confidence listeners of the transactions patch
+ * the confirmations when depth changes and project the transaction again when its confidence type changes.
+ * Depth changes every block for the whole history, so the update listener hears about them only up to
+ * CONFIRMATIONS_NOTIFY_LIMIT confirmations, deeper transactions are patched silently.
+ */
+class TransactionIndex implements WalletCoinsReceivedEventListener, WalletCoinsSentEventListener,
+        WalletReorganizeEventListener, WalletChangeEventListener {
+
+    private final static String CURSOR_SEPARATOR = ":";
+    /**
+     * Transaction with this many confirmations is considered final
+     */
+    final static int CONFIRMATIONS_NOTIFY_LIMIT = 6;
+    private final static String COINBASE_INPUT = "Coinbase";
+    private final static String UNKNOWN_INPUT = "N/A or SegWit";
+    private final static String UNKNOWN_OUTPUT = "N/A";
+
+    private final NetworkParameters params;
+
+    private final ConcurrentSkipListMap<Key, Entry> byTime = new ConcurrentSkipListMap<>();
+    private final Map<Sha256Hash, Entry> byHash = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<Key>> byAddress = new ConcurrentHashMap<>();
+    private final Map<TransactionDirection, NavigableSet<Key>> byDirection = new EnumMap<>(TransactionDirection.class);
+
+    private final TransactionConfidence.Listener confidenceListener = this::onConfidenceChanged;
+
+    @Nullable
+    private Wallet wallet;
+    @Nullable
+    private volatile Consumer<TransactionView> updateListener;
+
+    TransactionIndex(NetworkParameters params) {
+        this.params = params;
+        for (TransactionDirection direction : TransactionDirection.values())
+            byDirection.put(direction, new ConcurrentSkipListSet<>());
+    }
+
+    /**
+     * Indexes all transactions of the wallet and follows its changes, the previously attached wallet is released
+     */
+    synchronized void attach(@NotNull Wallet wallet) {
+        if (this.wallet != null) {
+            this.wallet.removeCoinsReceivedEventListener(this);
+            this.wallet.removeCoinsSentEventListener(this);
+            this.wallet.removeReorganizeEventListener(this);
+            this.wallet.removeChangeEventListener(this);
+        }
+        this.wallet = wallet;
+        wallet.addCoinsReceivedEventListener(this);
+        wallet.addCoinsSentEventListener(this);
+        wallet.addReorganizeEventListener(this);
+        wallet.addChangeEventListener(this);
+        rebuild();
+    }
+
+    private synchronized void rebuild() {
+        byHash.values().forEach(entry -> entry.tx.getConfidence().removeEventListener(confidenceListener));
+        byTime.clear();
+        byHash.clear();
+        byAddress.clear();
+        byDirection.values().forEach(Set::clear);
+        if (wallet != null)
+            // listeners are interested in changes, not in the whole history
+            wallet.getTransactions(false).forEach(tx -> index(tx, false));
+    }
+
+    @Override
+    public void onCoinsReceived(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
+        put(tx);
+    }
+
+    @Override
+    public void onCoinsSent(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
+        put(tx);
+    }
+
+    /**
+     * Values of transactions may change with the reorganization, so everything is computed again
+     */
+    @Override
+    public void onReorganize(Wallet wallet) {
+        rebuild();
+    }
+
+    /**
+     * Catches transactions added without coins being sent or received, checking pool sizes is cheap
+     */
+    @Override
+    public synchronized void onWalletChanged(Wallet wallet) {
+        if (wallet != this.wallet)
+            return;
+        int size = wallet.getPoolSize(WalletTransaction.Pool.UNSPENT)
+                + wallet.getPoolSize(WalletTransaction.Pool.SPENT)
+                + wallet.getPoolSize(WalletTransaction.Pool.PENDING);
+        if (size != byHash.size())
+            wallet.getTransactions(false).stream()
+                    .filter(tx -> !byHash.containsKey(tx.getHash()))
+                    .forEach(this::put);
+    }
+
+    private void onConfidenceChanged(TransactionConfidence confidence, TransactionConfidence.Listener.ChangeReason reason) {
+        Entry entry = byHash.get(confidence.getTransactionHash());
+        if (entry == null)
+            return;
+
+        switch (reason) {
+            case DEPTH:
+                if (entry.patchConfirmations() && entry.toView().getConfirmations() <= CONFIRMATIONS_NOTIFY_LIMIT)
+                    notifyUpdate(entry);
+                break;
+            case TYPE:
+                synchronized (this) {
+                    // amounts and direction depend on which transactions are alive
+                    if (confidence.getConfidenceType() == TransactionConfidence.ConfidenceType.DEAD)
+                        remove(entry);
+                    else
+                        put(entry.tx);
+                }
+                break;
+            default:
+                // seen peers are not part of the view
+        }
+    }
+
+    synchronized void put(Transaction tx) {
+        index(tx, true);
+    }
+
+    private void index(Transaction tx, boolean notify) {
+        if (wallet == null)
+            return;
+        Entry previous = byHash.get(tx.getHash());
+        if (previous != null)
+            removeFromIndexes(previous);
+
+        Entry entry = new Entry(params, wallet, tx);
+        byTime.put(entry.key, entry);
+        byHash.put(tx.getHash(), entry);
+        byDirection.get(entry.direction).add(entry.key);
+        for (String address : entry.addresses)
+            byAddress.computeIfAbsent(address, ignored -> new ConcurrentSkipListSet<>()).add(entry.key);
+        if (previous == null)
+            tx.getConfidence().addEventListener(confidenceListener);
+        if (notify)
+            notifyUpdate(entry);
+    }
+
+    /**
+     * @param updateListener called with views of added transactions and of those that changed
+     */
+    void setUpdateListener(@Nullable Consumer<TransactionView> updateListener) {
+        this.updateListener = updateListener;
+    }
+
+    private void notifyUpdate(Entry entry) {
+        Consumer<TransactionView> listener = updateListener;
+        if (listener != null)
+            listener.accept(entry.toView());
+    }
+
+    private void remove(Entry entry) {
+        entry.tx.getConfidence().removeEventListener(confidenceListener);
+        removeFromIndexes(entry);
+    }
+
+    private void removeFromIndexes(Entry entry) {
+        byTime.remove(entry.key);
+        byHash.remove(entry.tx.getHash());
+        byDirection.get(entry.direction).remove(entry.key);
+        for (String address : entry.addresses) {
+            NavigableSet<Key> keys = byAddress.get(address);
+            if (keys != null)
+                keys.remove(entry.key);
+        }
+    }
+
+    /**
+     * @return all transactions from the newest
+     */
+    List<TransactionView> getAll() {
+        return byTime.values().stream().map(Entry::toView).collect(toList());
+    }
+
+    TransactionPage getPage(@Nullable String cursor, int limit, @Nullable String address,
+                            @Nullable TransactionDirection direction) {
+        if (limit <= 0)
+            throw new IllegalArgumentException("limit has to be positive");
+
+        NavigableSet<Key> keys;
+        if (address != null)
+            keys = byAddress.getOrDefault(address, Collections.emptyNavigableSet());
+        else if (direction != null)
+            keys = byDirection.get(direction);
+        else
+            keys = byTime.navigableKeySet();
+        if (cursor != null)
+            keys = keys.tailSet(Key.parse(cursor), false);
+
+        List<TransactionView> transactions = new ArrayList<>(Math.min(limit, 64));
+        Key last = null;
+        boolean hasMore = false;
+        for (Key key : keys) {
+            Entry entry = byTime.get(key);
+            // entry could have been replaced meanwhile, or filtered out when both filters are given
+            if (entry == null || (direction != null && entry.direction != direction))
+                continue;
+            // next page is announced only when it will not be empty
+            if (transactions.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            transactions.add(entry.toView());
+            last = key;
+        }
+
+        String nextCursor = hasMore ? last.toString() : null;
+        return new TransactionPage(transactions, nextCursor);
+    }
+
+    int size() {
+        return byTime.size();
+    }
+
+    /**
+     * Orders transactions from the newest, ties are broken by hash
+     */
+    private static class Key implements Comparable<Key> {
+        private final long timestamp;
+        private final String hash;
+
+        Key(long timestamp, String hash) {
+            this.timestamp = timestamp;
+            this.hash = hash;
+        }
+
+        static Key parse(String cursor) {
+            int separator = cursor.indexOf(CURSOR_SEPARATOR);
+            if (separator < 0)
+                throw new IllegalArgumentException("Malformed cursor: " + cursor);
+            try {
+                return new Key(Long.parseLong(cursor.substring(0, separator)), cursor.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed cursor: " + cursor);
+            }
+        }
+
+        @Override
+        public int compareTo(@NotNull Key other) {
+            int byTime = Long.compare(other.timestamp, timestamp);
+            return byTime != 0 ? byTime : hash.compareTo(other.hash);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && compareTo((Key) obj) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(timestamp) + hash.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return timestamp + CURSOR_SEPARATOR + hash;
+        }
+    }
+
+    /**
+     * Projection of a transaction, only its confirmations change while the transaction stays in the wallet
+     */
+    private static class Entry {
+        private final Key key;
+        private final Transaction tx;
+        private final List<String> inputAddresses;
+        private final List<String> outputAddresses;
+        /**
+         * Base58 addresses among inputs and outputs, without placeholders of unknown ones
+         */
+        private final Set<String> addresses = new HashSet<>();
+        private final String amountFromMe;
+        private final String amountToMe;
+        private final String fee;
+        private final TransactionDirection direction;
+
+        /**
+         * Memoized view, replaced with patched copy when depth changes
+         */
+        private volatile TransactionView view;
+
+        Entry(NetworkParameters params, Wallet wallet, Transaction tx) {
+            this.tx = tx;
+            // The earliest time at which the transaction was seen, SHA256(Transaction) in hex encoding
+            this.key = new Key(tx.getUpdateTime().getTime(), tx.getHashAsString());
+
+            // There are different ways of revealing address depending on the script type
+            // 1. P2PKH (Pay to public key hash)
+            // 2. P2SH (Pay to script hash)
+            // 3. P2PK (Pay to public key)
+            // 4. Segregated witness outputs
+            // 5. m-of-n bare multisig
+
+            // Collect input addresses in user friendly Base58 form
+            this.inputAddresses = tx.getInputs().stream()
+                    .map(transactionInput -> {
+                        if (transactionInput.isCoinBase()) return COINBASE_INPUT;
+                        else try {
+                            return indexed(new Address(params,
+                                    Utils.sha256hash160(transactionInput
+                                            .getScriptSig()
+                                            .getPubKey()))
+                                    .toBase58());
+
+                        } catch (ScriptException e1) {
+                            return UNKNOWN_INPUT;
+                        }
+                    }).collect(toList());
+
+            // Collect output addresses in user friendly Base58 form
+            this.outputAddresses = tx.getOutputs().stream()
+                    .map(transactionOutput -> {
+                        try {
+                            return indexed(transactionOutput.getScriptPubKey().getToAddress(params).toBase58());
+                        } catch (ScriptException e) {
+                            return UNKNOWN_OUTPUT;
+                        }
+                    }).collect(toList());
+
+            Coin sentFromMe = tx.getValueSentFromMe(wallet);
+            Coin sentToMe = tx.getValueSentToMe(wallet);
+            this.amountFromMe = sentFromMe.toFriendlyString();
+            this.amountToMe = sentToMe.toFriendlyString();
+            this.direction = sentToMe.isGreaterThan(sentFromMe) ? TransactionDirection.INCOMING : TransactionDirection.OUTGOING;
+
+            // Fee is the difference between outputs and inputs
+            long fee = Math.max(0, tx.getInputSum().getValue() - tx.getOutputSum().getValue());
+            this.fee = Coin.valueOf(fee).toFriendlyString();
+
+            // How many blocks have been placed on top of this transaction's block
+            this.view = new TransactionView(key.hash, key.timestamp, inputAddresses, outputAddresses,
+                    amountFromMe, amountToMe, this.fee, tx.getConfidence().getDepthInBlocks());
+        }
+
+        private String indexed(String address) {
+            addresses.add(address);
+            return address;
+        }
+
+        /**
+         * @return true if confirmations have changed
+         */
+        boolean patchConfirmations() {
+            int confirmations = tx.getConfidence().getDepthInBlocks();
+            if (view.getConfirmations() == confirmations)
+                return false;
+            view = view.withConfirmations(confirmations);
+            return true;
+        }
+
+        TransactionView toView() {
+            return view;
+        }
+    }
+}
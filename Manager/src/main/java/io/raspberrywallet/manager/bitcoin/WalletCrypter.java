@@ -3,33 +3,58 @@ package io.raspberrywallet.manager.bitcoin;
 import com.google.protobuf.ByteString;
 import com.stasbar.Logger;
 import io.raspberrywallet.contract.IncorrectPasswordException;
+import io.raspberrywallet.manager.common.interfaces.Destroyable;
 import org.bitcoinj.crypto.KeyCrypterScrypt;
 import org.bitcoinj.wallet.Protos;
 import org.bitcoinj.wallet.Wallet;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.spongycastle.crypto.params.KeyParameter;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-public class WalletCrypter {
+/**
+ * Encrypts and decrypts wallets with scrypt derived keys.
+ * The last derived key is retained until {@link #destroy()}, so within one unlock session
+ * saving, encrypting and decrypting with the same password skip the derivation.
+ *
+ * Wallets are decrypted with the parameters they were encrypted with, but always encrypted with the configured ones,
+ * so a wallet encrypted under other parameters migrates the next time it is locked.
+ */
+public class WalletCrypter implements Destroyable {
     // These params were determined empirically on a top-range (as of 2014) MacBook Pro with native scrypt support,
     // using the scryptenc command line tool from the original scrypt distribution, given a memory limit of 40mb.
-    private static final Protos.ScryptParameters SCRYPT_PARAMETERS = Protos.ScryptParameters.newBuilder()
+    // Used only when no parameters were calibrated for the device.
+    static final Protos.ScryptParameters LEGACY_SCRYPT_PARAMETERS = Protos.ScryptParameters.newBuilder()
             .setP(6)
             .setR(8)
             .setN(32768)
-            .setSalt(ByteString.copyFrom(KeyCrypterScrypt.randomSalt()))
-            .build();
+            .buildPartial();
 
+    private final Protos.ScryptParameters scryptParameters;
 
-    void decryptWallet(@NotNull Wallet wallet, @NotNull String password) throws IncorrectPasswordException {
+    @Nullable
+    private RetainedKey retainedKey;
+
+    public WalletCrypter() {
+        this(LEGACY_SCRYPT_PARAMETERS);
+    }
+
+    /**
+     * @param scryptParameters N, r and p used for encryption, salt is generated for every new key
+     */
+    public WalletCrypter(Protos.ScryptParameters scryptParameters) {
+        this.scryptParameters = scryptParameters;
+    }
+
+    synchronized void decryptWallet(@NotNull Wallet wallet, @NotNull String password) throws IncorrectPasswordException {
         if (password.length() == 0 || password.length() < 4)
             throw new IncorrectPasswordException("Bad password. The password you entered is empty or too short.");
 
 
         final KeyCrypterScrypt scrypt = (KeyCrypterScrypt) wallet.getKeyCrypter();
         checkNotNull(scrypt);   // We should never arrive at this GUI if the wallet isn't actually encrypted.
-        KeyParameter aesKey = scrypt.deriveKey(password);
+        KeyParameter aesKey = retainedKey(scrypt, password);
         if (wallet.checkAESKey(aesKey)) {
             wallet.decrypt(aesKey);
         } else {
@@ -37,16 +62,64 @@ public class WalletCrypter {
         }
     }
 
-    public void encryptWallet(@NotNull Wallet wallet, @NotNull String password) throws IncorrectPasswordException {
+    public synchronized void encryptWallet(@NotNull Wallet wallet, @NotNull String password) throws IncorrectPasswordException {
         // This is kind of arbitrary and we could do much more to help people pick strong passwords.
         if (password.length() < 4)
             throw new IncorrectPasswordException("Password too short. You need to pick a password at least five characters or longer.");
 
-
-        KeyCrypterScrypt script = new KeyCrypterScrypt(SCRYPT_PARAMETERS);
-        KeyParameter aesKey = script.deriveKey(password);
-        Logger.info("Key derived, now encrypting");
+        // the wallet is encrypted again with the crypter of the retained key, salt included,
+        // unless the key was derived with other than configured parameters
+        KeyCrypterScrypt script;
+        if (retainedKey != null && retainedKey.matches(password) && hasConfiguredCost(retainedKey.getKeyCrypter())) {
+            script = retainedKey.getKeyCrypter();
+        } else {
+            if (retainedKey != null && !hasConfiguredCost(retainedKey.getKeyCrypter()))
+                Logger.info("Migrating wallet encryption to scrypt N=" + scryptParameters.getN()
+                        + " r=" + scryptParameters.getR() + " p=" + scryptParameters.getP());
+            script = new KeyCrypterScrypt(scryptParameters.toBuilder()
+                    .setSalt(ByteString.copyFrom(KeyCrypterScrypt.randomSalt()))
+                    .build());
+        }
+        KeyParameter aesKey = retainedKey(script, password);
+        Logger.info("Key ready, now encrypting");
         wallet.encrypt(script, aesKey);
         Logger.info("Wallet encrypted");
     }
+
+    /**
+     * @return key retained for the password and crypter, derived and retained if there is none
+     */
+    private KeyParameter retainedKey(KeyCrypterScrypt scrypt, String password) {
+        if (retainedKey != null && retainedKey.matches(scrypt) && retainedKey.matches(password))
+            return retainedKey.getAesKey();
+
+        long start = System.nanoTime();
+        KeyParameter aesKey = scrypt.deriveKey(password);
+        Logger.d("Key derived in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        destroy();
+        retainedKey = new RetainedKey(scrypt, aesKey, password);
+        return aesKey;
+    }
+
+    private boolean hasConfiguredCost(KeyCrypterScrypt keyCrypter) {
+        Protos.ScryptParameters parameters = keyCrypter.getScryptParameters();
+        return parameters.getN() == scryptParameters.getN()
+                && parameters.getR() == scryptParameters.getR()
+                && parameters.getP() == scryptParameters.getP();
+    }
+
+    synchronized boolean hasRetainedKey() {
+        return retainedKey != null;
+    }
+
+    /**
+     * Wipes the retained key, next operation derives it again. Should be called when the wallet gets locked.
+     */
+    @Override
+    public synchronized void destroy() {
+        if (retainedKey != null) {
+            retainedKey.destroy();
+            retainedKey = null;
+        }
+    }
 }
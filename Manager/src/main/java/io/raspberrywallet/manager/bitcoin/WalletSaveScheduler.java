@@ -0,0 +1,166 @@
+package io.raspberrywallet.manager.bitcoin;
+
+import com.stasbar.Logger;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletProtobufSerializer;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Writes the wallet file on its own thread. The wallet is serialized by the caller, so the snapshot
+ * reflects its state at that moment (encrypted), and only the latest snapshot of a burst of requests is written.
+ * Files are replaced atomically through a synced temporary file, so the wallet on disk is never half written.
+ */
+public class WalletSaveScheduler {
+
+    private final static long DEFAULT_COALESCE_MILLIS = 500;
+    private final static long RETRY_DELAY_MILLIS = 5000;
+
+    private final File walletFile;
+    private final long coalesceMillis;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "WalletSaver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Latest snapshot not yet written, guarded by this
+     */
+    @Nullable
+    private byte[] pendingSnapshot;
+    private boolean writeScheduled;
+    private boolean writing;
+
+    private volatile long lastSaveLatencyNanos = -1;
+    private volatile long lastSaveTimestamp;
+
+    public WalletSaveScheduler(File walletFile) {
+        this(walletFile, DEFAULT_COALESCE_MILLIS);
+    }
+
+    WalletSaveScheduler(File walletFile, long coalesceMillis) {
+        this.walletFile = walletFile;
+        this.coalesceMillis = coalesceMillis;
+    }
+
+    /**
+     * Serializes the wallet now and writes it later, replacing any snapshot still waiting to be written
+     */
+    public void requestSave(Wallet wallet) {
+        requestSave(new WalletProtobufSerializer().walletToProto(wallet).toByteArray());
+    }
+
+    synchronized void requestSave(byte[] snapshot) {
+        pendingSnapshot = snapshot;
+        if (!writeScheduled) {
+            writeScheduled = true;
+            executor.schedule(this::writePending, coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void writePending() {
+        byte[] snapshot;
+        synchronized (this) {
+            writeScheduled = false;
+            snapshot = pendingSnapshot;
+            pendingSnapshot = null;
+            writing = snapshot != null;
+        }
+        if (snapshot == null)
+            return;
+
+        long start = System.nanoTime();
+        try {
+            writeAtomically(snapshot);
+            lastSaveLatencyNanos = System.nanoTime() - start;
+            lastSaveTimestamp = System.currentTimeMillis();
+            Logger.d("Saved wallet to: " + walletFile.getAbsolutePath() + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(lastSaveLatencyNanos) + " ms");
+            synchronized (this) {
+                writing = false;
+            }
+        } catch (IOException e) {
+            Logger.err("Failed to save wallet: " + e.getMessage());
+            synchronized (this) {
+                writing = false;
+                // newer snapshot supersedes the failed one
+                if (pendingSnapshot == null)
+                    pendingSnapshot = snapshot;
+                if (!writeScheduled) {
+                    writeScheduled = true;
+                    executor.schedule(this::writePending, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    private void writeAtomically(byte[] snapshot) throws IOException {
+        File directory = walletFile.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile("wallet", null, directory);
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temp)) {
+                stream.write(snapshot);
+                stream.flush();
+                stream.getFD().sync();
+            }
+            try {
+                Files.move(temp.toPath(), walletFile.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), walletFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * Writes the pending snapshot without waiting for the coalescing delay and waits until it is on disk
+     *
+     * @return true if nothing is pending anymore
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        try {
+            executor.submit(this::writePending).get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            Logger.err("Failed to flush wallet save: " + e.getMessage());
+        }
+        return !isSavePending();
+    }
+
+    /**
+     * @return true while a requested save is waiting or being written
+     */
+    public synchronized boolean isSavePending() {
+        return pendingSnapshot != null || writing;
+    }
+
+    /**
+     * @return duration of the last successful write in milliseconds, -1 if nothing has been written yet
+     */
+    public long getLastSaveLatencyMillis() {
+        long latency = lastSaveLatencyNanos;
+        return latency < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(latency);
+    }
+
+    /**
+     * @return time of the last successful write in milliseconds since epoch, 0 if nothing has been written yet
+     */
+    public long getLastSaveTimestamp() {
+        return lastSaveTimestamp;
+    }
+}
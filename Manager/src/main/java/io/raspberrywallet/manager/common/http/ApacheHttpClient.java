@@ -2,57 +2,132 @@ package io.raspberrywallet.manager.common.http;
 
 import org.apache.commons.lang.NotImplementedException;
 import org.apache.http.Header;
-import org.apache.http.HttpResponse;
+import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.fluent.Form;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
 import org.json.JSONObject;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client sharing a pool of keep-alive connections between requests.
+ * Every response is read whole, so its connection goes back to the pool, and HTTPS connections
+ * share one SSLContext, so new connections resume cached TLS sessions instead of full handshakes.
+ */
+public abstract class ApacheHttpClient implements Closeable {
+
+    private static final int MAX_CONNECTIONS = 4;
+    /**
+     * How long to keep an idle connection when the server does not send Keep-Alive timeout
+     */
+    private static final long DEFAULT_KEEP_ALIVE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+    private static final int DEFAULT_TIMEOUT_MILLIS = 10000;
 
-public abstract class ApacheHttpClient {
-    
     Header[] defaultHeaders;
-    HttpClient httpClient;
-    
-    ApacheHttpClient(Form defaultHeaders) {
+    CloseableHttpClient httpClient;
+    private volatile RequestConfig requestConfig = timeouts(DEFAULT_TIMEOUT_MILLIS, DEFAULT_TIMEOUT_MILLIS);
+
+    ApacheHttpClient(Form defaultHeaders, SSLConnectionSocketFactory sslSocketFactory) {
         this.defaultHeaders = toHeadersArray(defaultHeaders);
-        httpClient = HttpClients.createDefault();
+        httpClient = createPooledClient(sslSocketFactory);
+    }
+
+    private static CloseableHttpClient createPooledClient(SSLConnectionSocketFactory sslSocketFactory) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", sslSocketFactory)
+                        .build());
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return keepAlive > 0 ? keepAlive : DEFAULT_KEEP_ALIVE_MILLIS;
+                })
+                // no client certificates are used, so pooled TLS connections are not bound to a user
+                .disableConnectionState()
+                .evictExpiredConnections()
+                .evictIdleConnections(DEFAULT_KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * @param connectTimeoutMillis limit for establishing a connection, also for waiting for one from the pool
+     * @param readTimeoutMillis    limit for inactivity while waiting for the response
+     */
+    public void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        requestConfig = timeouts(connectTimeoutMillis, readTimeoutMillis);
+    }
+
+    private static RequestConfig timeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(connectTimeoutMillis)
+                .setConnectTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .build();
     }
-    
-    public HttpResponse sendPOSTRequest(Form body, String endpoint) throws IOException {
+
+    public HttpResult sendPOSTRequest(Form body, String endpoint) throws IOException {
         JSONObject jsonObject = convert(body);
-        StringEntity stringEntity = new StringEntity(jsonObject.toString());
-    
+        StringEntity stringEntity = new StringEntity(jsonObject.toString(), ContentType.APPLICATION_JSON);
+
         HttpPost httpRequest = new HttpPost(endpoint);
         httpRequest.setEntity(stringEntity);
         httpRequest.setHeaders(defaultHeaders);
-    
-        return httpClient.execute(httpRequest);
+        httpRequest.setConfig(requestConfig);
+
+        // response handler consumes the entity, which releases the connection back to the pool
+        return httpClient.execute(httpRequest, response -> {
+            HttpEntity entity = response.getEntity();
+            String content = entity == null ? null : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+            return new HttpResult(response.getStatusLine().getStatusCode(), content);
+        });
     }
-    
-    public HttpResponse sendGETRequest(Form body, String endpoint) {
+
+    public HttpResult sendGETRequest(Form body, String endpoint) {
         throw new NotImplementedException();
     }
-    
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
     JSONObject convert(Form body) {
         List<NameValuePair> keyValuesList = body.build();
         JSONObject convertedJson = new JSONObject();
         keyValuesList.forEach(pair -> convertedJson.put(pair.getName(), pair.getValue()));
         return convertedJson;
     }
-    
+
     Header[] toHeadersArray(Form form) {
         List<NameValuePair> list = form.build();
         return list.stream()
                 .map(nameValuePair -> new BasicHeader(nameValuePair.getName(), nameValuePair.getValue()))
                 .toArray(Header[]::new);
     }
-    
+
 }
@@ -0,0 +1,68 @@
+package io.raspberrywallet.manager.common.http;
+
+import com.stasbar.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calling an endpoint after consecutive failures. After the cooldown a single trial call is let through,
+ * its success closes the circuit again, its failure opens it for another cooldown.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long cooldownNanos;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    public CircuitBreaker(String name, int failureThreshold, long cooldownMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+    }
+
+    /**
+     * @return true if a call can be made now, every permitted call has to be followed by onSuccess or onFailure
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < cooldownNanos)
+                    return false;
+                state = State.HALF_OPEN;
+                return true;
+            default:
+                // trial call is already in flight
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED)
+            Logger.info("Circuit of " + name + " closed");
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            Logger.err("Circuit of " + name + " opened after " + failures + " failures");
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,18 @@
+package io.raspberrywallet.manager.common.http;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Status and body of a response, read before its connection is returned to the pool
+ */
+@Getter
+@AllArgsConstructor
+public class HttpResult {
+
+    private final int statusCode;
+
+    @Nullable
+    private final String body;
+}
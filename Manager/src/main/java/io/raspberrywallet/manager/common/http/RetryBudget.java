@@ -0,0 +1,54 @@
+package io.raspberrywallet.manager.common.http;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries and time shared by all requests of a single operation, so it takes bounded time however many calls it makes
+ */
+public class RetryBudget {
+
+    private final long deadline;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    private int retriesLeft;
+    private int attempts;
+
+    public RetryBudget(int maxRetries, long timeoutMillis, long baseDelayMillis, long maxDelayMillis) {
+        this.retriesLeft = maxRetries;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public synchronized void onAttempt() {
+        attempts++;
+    }
+
+    /**
+     * Takes one retry from the budget
+     *
+     * @param attempt number of failed attempts of the request so far, starting from 1
+     * @return delay before the retry in milliseconds drawn from exponential backoff with full jitter,
+     * or -1 when the budget is spent or the retry would start after the deadline
+     */
+    public synchronized long nextRetryDelay(int attempt) {
+        if (retriesLeft <= 0)
+            return -1;
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (delay >= getRemainingMillis())
+            return -1;
+        retriesLeft--;
+        return delay;
+    }
+
+    public long getRemainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+}
@@ -1,9 +1,8 @@
 package io.raspberrywallet.manager.common.http;
 
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.fluent.Form;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.ssl.SSLContextBuilder;
 
 import javax.net.ssl.SSLContext;
@@ -14,11 +13,10 @@ import java.security.NoSuchAlgorithmException;
 public class SecureApacheHttpClient extends ApacheHttpClient {
     
     public SecureApacheHttpClient(Form defaultHeaders, boolean acceptAllCerts) {
-        super(defaultHeaders);
-        httpClient = acceptAllCerts ? setupAcceptAllHttpClient() : HttpClients.createDefault();
+        super(defaultHeaders, acceptAllCerts ? setupAcceptAllSocketFactory() : SSLConnectionSocketFactory.getSocketFactory());
     }
     
-    private HttpClient setupAcceptAllHttpClient() {
+    private static SSLConnectionSocketFactory setupAcceptAllSocketFactory() {
         SSLContext sslContext;
         try {
             sslContext = new SSLContextBuilder()
@@ -28,9 +26,6 @@ public class SecureApacheHttpClient extends ApacheHttpClient {
             throw new RuntimeException(impossible);
         }
     
-        return HttpClients.custom()
-                .setSSLContext(sslContext)
-                .setSSLHostnameVerifier(new NoopHostnameVerifier())
-                .build();
+        return new SSLConnectionSocketFactory(sslContext, new NoopHostnameVerifier());
     }
 }
@@ -2,6 +2,7 @@ package io.raspberrywallet.manager.cryptography.crypto;
 
 import org.apache.commons.lang.SerializationUtils;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -42,19 +43,35 @@ class CipherHeaderManager {
         int cipherDataLength = getHeaderSize(inputStream);
         
         byte[] cipherDataBytes = new byte[cipherDataLength];
-        inputStream.read(cipherDataBytes, 0, cipherDataLength);
+        readFully(inputStream, cipherDataBytes);
         
         return (E)SerializationUtils.deserialize(cipherDataBytes);
     }
     
     static int getTotalHeaderSize(InputStream inputStream) throws IOException {
-        byte isBigEndian = (byte) inputStream.read();
+        int endianByte = inputStream.read();
+        if (endianByte == -1)
+            throw new EOFException("Missing cipher header");
+        byte isBigEndian = (byte) endianByte;
         byte[] bytesWithCipherDataLength = new byte[INT_SIZE];
-        inputStream.read(bytesWithCipherDataLength, 0, INT_SIZE);
+        readFully(inputStream, bytesWithCipherDataLength);
         int cipherDataLength = getCipherDataLength(bytesWithCipherDataLength, isBigEndian);
         return cipherDataLength + HEADER_METADATA_SIZE;
     }
     
+    /**
+     * Single read may return less bytes than requested, e.g. from pipes or sockets.
+     */
+    private static void readFully(InputStream inputStream, byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            int read = inputStream.read(bytes, offset, bytes.length - offset);
+            if (read == -1)
+                throw new EOFException("Truncated cipher header");
+            offset += read;
+        }
+    }
+    
     private static int getHeaderSize(InputStream inputStream) throws IOException {
         return getTotalHeaderSize(inputStream) - HEADER_METADATA_SIZE;
     }
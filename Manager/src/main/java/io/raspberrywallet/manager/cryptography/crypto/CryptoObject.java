@@ -27,8 +27,22 @@ public class CryptoObject {
      *                             EncryptionException, with original or custom error message.
      */
     public static <E extends Serializable> AESEncryptedObject<E> encrypt(E object, String password) throws EncryptionException {
-        AESCipherParams aesCipherParams = new AESCipherParams();
-        
+        return encrypt(object, password, new AESCipherParams());
+    }
+
+    /**
+     * Same as {@link #encrypt(Serializable, String)}, but with explicitly given AES parameters. Reusing key salt of
+     * previously used parameters (see {@link AESCipherParams#withNewIv()}) lets the derived key be taken from cache.
+     * @param object Any object implementing Serializable interface.
+     * @param password Password that will be used with PBEKeySpec for AES encryption.
+     * @param aesCipherParams AES parameters used for encryption, their IV must not be reused.
+     * @param <E> The type of an object, that is going to be encrypted.
+     * @return Wrapped in AESEncryptedObject serialized bytes of original object with AES parameters, needed for decryption.
+     * @throws EncryptionException If there is any error with encryption, then it's caught and thrown as
+     *                             EncryptionException, with original or custom error message.
+     */
+    public static <E extends Serializable> AESEncryptedObject<E> encrypt(E object, String password,
+                                                                         AESCipherParams aesCipherParams) throws EncryptionException {
         try {
             Cipher cipher = aesCipherParams.getCipher(password, Cipher.ENCRYPT_MODE);
     
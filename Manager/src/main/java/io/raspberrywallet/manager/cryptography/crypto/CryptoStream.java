@@ -1,5 +1,8 @@
 package io.raspberrywallet.manager.cryptography.crypto;
 
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+import com.stasbar.Logger;
 import io.raspberrywallet.manager.cryptography.crypto.algorithms.AESCipherParams;
 import io.raspberrywallet.manager.cryptography.crypto.algorithms.RSACipherParams;
 import io.raspberrywallet.manager.cryptography.crypto.exceptions.DecryptionException;
@@ -13,6 +16,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.security.*;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
 
 /**
  * Class that is used for Stream encryption and decryption.
@@ -20,8 +24,16 @@ import java.security.spec.InvalidKeySpecException;
  */
 public class CryptoStream {
     
-    final private InputStream inputStream;
-    final private OutputStream outputStream;
+    // in bytes
+    private final static int BUFFER_SIZE = 64 * 1024;
+    
+    final private CountingInputStream inputStream;
+    final private CountingOutputStream outputStream;
+    
+    /**
+     * Reused by every transfer of this instance and wiped after each of them, since it holds plain data.
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
     
     /**
      * Pass streams that are going to be encrypted or decrypted.
@@ -29,16 +41,32 @@ public class CryptoStream {
      * @param outputStream To this stream, the encryption or decryption operation will save the data.
      */
     public CryptoStream(InputStream inputStream, OutputStream outputStream) {
-        this.inputStream = inputStream;
-        this.outputStream = outputStream;
+        this.inputStream = new CountingInputStream(inputStream);
+        this.outputStream = new CountingOutputStream(outputStream);
     }
     
     /**
      * Method transferTo was added in Java 9 and it's simple work around to keep with Java 8.
+     * Copies until the end of stream, so it works also with pipes and sockets which don't report available bytes.
      */
-    private static void transferTo(InputStream inputStream, OutputStream outputStream) throws IOException {
-        while (inputStream.available() > 0)
-            outputStream.write(inputStream.read());
+    private void transferTo(InputStream inputStream, OutputStream outputStream) throws IOException {
+        try {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1)
+                outputStream.write(buffer, 0, read);
+        } finally {
+            Arrays.fill(buffer, (byte) 0);
+        }
+    }
+    
+    private TransferStats transfer(Cipher cipher, long startTime) throws IOException {
+        try (CipherOutputStream cipherOutputStream = new CipherOutputStream(outputStream, cipher)) {
+            transferTo(inputStream, cipherOutputStream);
+        }
+        TransferStats stats = new TransferStats(inputStream.getCount(), outputStream.getCount(),
+                System.nanoTime() - startTime);
+        Logger.d("CryptoStream " + cipher.getAlgorithm() + " " + stats);
+        return stats;
     }
     
     // encryption
@@ -47,15 +75,18 @@ public class CryptoStream {
      * This method is using AES algorithm to encrypt given input stream and write it to given output stream.
      * Output stream contain serialized header with metadata, that can be used for decryption.
      * @param password Password that will be used with PBEKeySpec for AES encryption.
+     * @return number of processed bytes and throughput of the encryption
      * @throws EncryptionException If there is any error with encryption, then it's caught and thrown as
      *                             EncryptionException, with original or custom error message.
      */
-    public void encrypt(String password) throws EncryptionException {
+    public TransferStats encrypt(String password) throws EncryptionException {
         try {
+            long startTime = System.nanoTime();
             AESCipherParams aesCipherParams = new AESCipherParams();
             Cipher cipher = aesCipherParams.getCipher(password, Cipher.ENCRYPT_MODE);
+            CipherHeaderManager.writeCipherData(aesCipherParams, outputStream);
     
-            encrypt(cipher);
+            return transfer(cipher, startTime);
         }
         catch (IOException | InvalidKeyException e) {
             throw new EncryptionException(e);
@@ -70,13 +101,16 @@ public class CryptoStream {
      * This method is using AES algorithm to encrypt given input stream and write it to given output stream.
      * Output stream contains serialized header with metadata, that can be used for decryption.
      * @param publicKey Public key used for encryption.
+     * @return number of processed bytes and throughput of the encryption
      */
-    public void encrypt(PublicKey publicKey) throws EncryptionException {
+    public TransferStats encrypt(PublicKey publicKey) throws EncryptionException {
         RSACipherParams cipherFactory = new RSACipherParams();
         try {
+            long startTime = System.nanoTime();
             Cipher cipher = cipherFactory.getEncryptCipher(publicKey);
+            CipherHeaderManager.writeCipherData(cipherFactory, outputStream);
             
-            encrypt(cipher);
+            return transfer(cipher, startTime);
         }
         catch (IOException | InvalidKeyException exception) {
             throw new EncryptionException(exception);
@@ -87,26 +121,22 @@ public class CryptoStream {
         }
     }
     
-    private void encrypt(Cipher cipher) throws IOException {
-        try (CipherOutputStream cipherOutputStream = new CipherOutputStream(outputStream, cipher)) {
-            transferTo(inputStream, cipherOutputStream);
-        }
-    }
-    
     // decryption
     
     /**
      * This method is used for decryption of encrypted data in given input stream. The encryption algorithm must be AES.
      * The input stream must contain AESFactory serialized header, which was used to encryption.
      * @param password Password that will be used for creating PBBKeySpec for AES decryption.
+     * @return number of processed bytes and throughput of the decryption
      * @throws DecryptionException If there is any error in decryption, then it is caught and thrown as
      *                             DecryptionException, with it's original or custom message.
      */
-    public void decrypt(String password) throws DecryptionException {
+    public TransferStats decrypt(String password) throws DecryptionException {
         try {
+            long startTime = System.nanoTime();
             AESCipherParams aesCipherParams = CipherHeaderManager.readCipherData(inputStream);
             Cipher cipher = aesCipherParams.getCipher(password, Cipher.DECRYPT_MODE);
-            decrypt(cipher);
+            return transfer(cipher, startTime);
         } catch (IOException | NoSuchAlgorithmException | InvalidKeyException | NoSuchPaddingException | InvalidAlgorithmParameterException | InvalidKeySpecException exception) {
             throw new DecryptionException(exception);
         }
@@ -116,23 +146,19 @@ public class CryptoStream {
      * This method is used for decryption of encrypted data in given input stream. The encryption algorithm must be RSA.
      * The input stream must contain RSAFactory serialized header, which was used to encryption.
      * @param privateKey Private RSA key needed for decryption.
+     * @return number of processed bytes and throughput of the decryption
      * @throws DecryptionException If there is any error in decryption, then it is caught and thrown as
      *                             DecryptionException, with it's original or custom message.
      */
-    public void decrypt(PrivateKey privateKey) throws DecryptionException {
+    public TransferStats decrypt(PrivateKey privateKey) throws DecryptionException {
         try {
+            long startTime = System.nanoTime();
             RSACipherParams rsaCipherParams = CipherHeaderManager.readCipherData(inputStream);
             Cipher cipher = rsaCipherParams.getDecryptCipher(privateKey);
             
-            decrypt(cipher);
+            return transfer(cipher, startTime);
         } catch (NoSuchPaddingException | NoSuchAlgorithmException | InvalidKeyException | IOException exception) {
             throw new DecryptionException(exception);
         }
     }
-    
-    private void decrypt(Cipher cipher) throws IOException {
-        try (CipherOutputStream cipherOutputStream = new CipherOutputStream(outputStream, cipher)) {
-             transferTo(inputStream, cipherOutputStream);
-        }
-    }
 }
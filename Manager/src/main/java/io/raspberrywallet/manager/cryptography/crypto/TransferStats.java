@@ -0,0 +1,41 @@
+package io.raspberrywallet.manager.cryptography.crypto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of a single CryptoStream encryption or decryption
+ */
+@Getter
+@AllArgsConstructor
+public class TransferStats {
+
+    /**
+     * Number of bytes read from the input stream, including the cipher header when decrypting
+     */
+    private final long bytesRead;
+
+    /**
+     * Number of bytes written to the output stream, including the cipher header when encrypting
+     */
+    private final long bytesWritten;
+
+    private final long elapsedNanos;
+
+    /**
+     * @return processed input in bytes per second
+     */
+    public double getThroughput() {
+        if (elapsedNanos <= 0)
+            return 0;
+        return bytesRead * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("read %d B, written %d B in %.3f ms (%.2f MB/s)",
+                bytesRead, bytesWritten, elapsedNanos / 1e6, getThroughput() / (1024 * 1024));
+    }
+}
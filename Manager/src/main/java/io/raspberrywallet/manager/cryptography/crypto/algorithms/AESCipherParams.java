@@ -1,6 +1,6 @@
 package io.raspberrywallet.manager.cryptography.crypto.algorithms;
 
-
+import io.raspberrywallet.manager.common.ArrayDestroyer;
 
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
@@ -17,7 +17,9 @@ import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 
 public class AESCipherParams extends CipherParams implements Serializable {
-    
+
+    private static final long serialVersionUID = -3042184992462909188L;
+
     private String hashAlgorithmName;
     private byte[] ivBytes;
     private byte[] keySalt;
@@ -43,20 +45,56 @@ public class AESCipherParams extends CipherParams implements Serializable {
         iterationsAmount = algorithmFactory.getKeyHashIterationsAmount();
     }
 
+    private AESCipherParams(AESCipherParams other) {
+        ivBytes = new byte[other.ivBytes.length];
+        new SecureRandom().nextBytes(ivBytes);
+
+        algorithmName = other.algorithmName;
+        algorithmFullName = other.algorithmFullName;
+        hashAlgorithmName = other.hashAlgorithmName;
+        keySalt = other.keySalt.clone();
+        keySize = other.keySize;
+        iterationsAmount = other.iterationsAmount;
+    }
+
+    /**
+     * Key salt and iterations stay the same, so the derived key can be reused from {@link DerivedKeyCache},
+     * only the IV is regenerated, which is enough for AES/CBC to never encrypt twice with the same key and IV.
+     *
+     * @return copy of these params with new random IV
+     */
+    public AESCipherParams withNewIv() {
+        return new AESCipherParams(this);
+    }
+
     public Cipher getCipher(String password, int cipherMode) throws NoSuchPaddingException, NoSuchAlgorithmException,
             InvalidKeySpecException, InvalidAlgorithmParameterException, InvalidKeyException {
         
         Cipher cipher = Cipher.getInstance(algorithmFullName);
         
         IvParameterSpec ivParameterSpec = new IvParameterSpec(ivBytes);
-        SecretKeyFactory factory = SecretKeyFactory.getInstance(hashAlgorithmName);
-        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), keySalt, iterationsAmount, keySize);
-        SecretKey secretKey = factory.generateSecret(spec);
-        SecretKeySpec secret = new SecretKeySpec(secretKey.getEncoded(), algorithmName);
+        byte[] derivedKey = deriveKey(password);
+        SecretKeySpec secret = new SecretKeySpec(derivedKey, algorithmName);
+        ArrayDestroyer.destroy(derivedKey);
         cipher.init(cipherMode, secret, ivParameterSpec);
         
         return cipher;
     }
+
+    private byte[] deriveKey(String password) throws NoSuchAlgorithmException, InvalidKeySpecException {
+        DerivedKeyCache cache = DerivedKeyCache.getInstance();
+        byte[] derivedKey = cache.get(hashAlgorithmName, keySalt, iterationsAmount, keySize, password);
+        if (derivedKey != null)
+            return derivedKey;
+
+        SecretKeyFactory factory = SecretKeyFactory.getInstance(hashAlgorithmName);
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), keySalt, iterationsAmount, keySize);
+        SecretKey secretKey = factory.generateSecret(spec);
+        spec.clearPassword();
+        derivedKey = secretKey.getEncoded();
+        cache.put(hashAlgorithmName, keySalt, iterationsAmount, keySize, password, derivedKey);
+        return derivedKey;
+    }
     
     public String getHashAlgorithmName() {
         return hashAlgorithmName;
@@ -0,0 +1,139 @@
+package io.raspberrywallet.manager.cryptography.crypto.algorithms;
+
+import io.raspberrywallet.manager.common.ArrayDestroyer;
+import io.raspberrywallet.manager.common.interfaces.Destroyable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Session scoped cache of password derived keys.
+ * PBKDF2 derivation is by design the most expensive part of every AES operation, this cache lets
+ * repeated encryptions and decryptions with the same password, salt and iterations skip it.
+ *
+ * Entries are identified by (algorithm, salt, iterations, key size, SHA-256 of password), so the password itself
+ * is never kept. The cache is bounded, least recently used entries are wiped when it overflows,
+ * and the whole content is wiped on {@link #destroy()}, which should be called when the wallet gets locked.
+ */
+public class DerivedKeyCache implements Destroyable {
+
+    private final static int MAX_ENTRIES = 16;
+    private final static String PASSWORD_DIGEST_ALGORITHM = "SHA-256";
+    private final static DerivedKeyCache INSTANCE = new DerivedKeyCache(MAX_ENTRIES);
+
+    private final int maxEntries;
+    private final LinkedHashMap<Entry, byte[]> derivedKeys;
+
+    DerivedKeyCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.derivedKeys = new LinkedHashMap<Entry, byte[]>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Entry, byte[]> eldest) {
+                if (size() <= DerivedKeyCache.this.maxEntries)
+                    return false;
+
+                eldest.getKey().destroy();
+                ArrayDestroyer.destroy(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public static DerivedKeyCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return copy of previously derived key or null if it has not been derived in this session
+     */
+    @Nullable
+    synchronized byte[] get(String algorithm, byte[] salt, int iterations, int keySize, String password) {
+        Entry entry = new Entry(algorithm, salt, iterations, keySize, password);
+        byte[] derivedKey = derivedKeys.get(entry);
+        entry.destroy();
+        return derivedKey == null ? null : derivedKey.clone();
+    }
+
+    synchronized void put(String algorithm, byte[] salt, int iterations, int keySize, String password,
+                          @NotNull byte[] derivedKey) {
+        byte[] previous = derivedKeys.put(new Entry(algorithm, salt, iterations, keySize, password), derivedKey.clone());
+        if (previous != null)
+            ArrayDestroyer.destroy(previous);
+    }
+
+    synchronized int size() {
+        return derivedKeys.size();
+    }
+
+    /**
+     * Wipes all derived keys, every following operation has to derive its key again
+     */
+    @Override
+    public synchronized void destroy() {
+        Iterator<Map.Entry<Entry, byte[]>> iterator = derivedKeys.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Entry, byte[]> next = iterator.next();
+            next.getKey().destroy();
+            ArrayDestroyer.destroy(next.getValue());
+            iterator.remove();
+        }
+    }
+
+    private static class Entry implements Destroyable {
+        private final String algorithm;
+        private final byte[] salt;
+        private final int iterations;
+        private final int keySize;
+        private final byte[] passwordDigest;
+        private final int hashCode;
+
+        Entry(String algorithm, byte[] salt, int iterations, int keySize, String password) {
+            this.algorithm = algorithm;
+            this.salt = salt.clone();
+            this.iterations = iterations;
+            this.keySize = keySize;
+            this.passwordDigest = digest(password);
+            this.hashCode = 31 * (31 * (31 * algorithm.hashCode() + Arrays.hashCode(salt)) + iterations) + keySize;
+        }
+
+        private static byte[] digest(String password) {
+            try {
+                return MessageDigest.getInstance(PASSWORD_DIGEST_ALGORITHM)
+                        .digest(password.getBytes(StandardCharsets.UTF_8));
+            } catch (NoSuchAlgorithmException e) {
+                // this shouldn't happen, SHA-256 is required on every Java platform
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry))
+                return false;
+
+            Entry other = (Entry) obj;
+            return iterations == other.iterations
+                    && keySize == other.keySize
+                    && algorithm.equals(other.algorithm)
+                    && Arrays.equals(salt, other.salt)
+                    && MessageDigest.isEqual(passwordDigest, other.passwordDigest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public void destroy() {
+            ArrayDestroyer.destroy(passwordDigest);
+        }
+    }
+}
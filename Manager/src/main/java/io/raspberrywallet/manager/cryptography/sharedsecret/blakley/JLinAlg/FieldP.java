@@ -202,6 +202,31 @@ public class FieldP extends FieldElement {
 		return element.toString();
 	}
 
+	/**
+	 * Returns the smallest non-negative representant of this element. For use by FieldPMatrix.
+	 * @return The value of this element.
+	 * @throws InvalidOperationException Thrown if p is too big for long computations.
+	 */
+	long getLongValue() {
+		return asLong().value;
+	}
+
+	/**
+	 * Returns the number of elements of the field of this element. For use by FieldPMatrix.
+	 * @return p
+	 * @throws InvalidOperationException Thrown if p is too big for long computations.
+	 */
+	long getLongP() {
+		return asLong().p;
+	}
+
+	private FieldPLong asLong() {
+		if (!(element instanceof FieldPLong)) {
+			throw new InvalidOperationException("p of " + this + " is too big for long computations");
+		}
+		return (FieldPLong) element;
+	}
+
 	/**
 	 * Returns true if and only if this and o represent the same element of the same field.
 	 * @param o The element to compare to.
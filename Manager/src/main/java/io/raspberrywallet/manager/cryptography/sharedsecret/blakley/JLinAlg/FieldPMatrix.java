@@ -0,0 +1,489 @@
+package io.raspberrywallet.manager.cryptography.sharedsecret.blakley.JLinAlg;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * This class represents a matrix over the field Fp, where p is small enough
+ * for all computations to be done using long. Entries are stored row-major in
+ * a single long array as the smallest non-negative representants, so
+ * row reduction works in place and does not create an object per operation.
+ * Indices start at 1 like in Matrix.
+ */
+
+public class FieldPMatrix implements Serializable {
+
+	/** for all primes p less than this boundary the product of two
+	 * representants fits into long, see FieldP. */
+	private static final long PRIME_BOUNDARY = 3037000500l;
+
+	private long p;
+
+	private final int numOfRows;
+
+	private final int numOfCols;
+
+	private final long[] entries;
+
+	/**
+	 * Constructs a zero FieldPMatrix with a certain number of rows and columns.
+	 *
+	 * @param numberOfRows
+	 * @param numberOfCols
+	 * @param p
+	 *            prime less than 3037000500
+	 */
+
+	public FieldPMatrix(int numberOfRows, int numberOfCols, long p) {
+		if (p < 2 || p >= PRIME_BOUNDARY) {
+			throw new IllegalArgumentException("p = " + p
+					+ " is out of range 2.." + PRIME_BOUNDARY);
+		}
+		this.numOfRows = numberOfRows;
+		this.numOfCols = numberOfCols;
+		this.p = p;
+		this.entries = new long[numberOfRows * numberOfCols];
+	}
+
+	/**
+	 * Constructs a FieldPMatrix from rows of arbitrary representants.
+	 *
+	 * @param theEntries
+	 * @param p
+	 */
+
+	public FieldPMatrix(long[][] theEntries, long p) {
+		this(theEntries.length, theEntries[0].length, p);
+		for (int row = 1; row <= numOfRows; row++) {
+			if (theEntries[row - 1].length != numOfCols) {
+				throw new InvalidOperationException(
+						"Rows of the entries have different lengths");
+			}
+			for (int col = 1; col <= numOfCols; col++) {
+				set(row, col, theEntries[row - 1][col - 1]);
+			}
+		}
+	}
+
+	/**
+	 * Adapts a Matrix of FieldP or Rational entries to Fp. Rational entries
+	 * are mapped by inverting their denominator modulo p.
+	 *
+	 * @param matrix
+	 * @param p
+	 * @return FieldPMatrix with the same entries modulo p
+	 * @throws InvalidOperationException
+	 *             if an entry can not be represented in Fp
+	 */
+
+	public static FieldPMatrix fromMatrix(Matrix matrix, long p)
+			throws InvalidOperationException {
+		FieldPMatrix result = new FieldPMatrix(matrix.getRows(), matrix
+				.getCols(), p);
+		BigInteger bigP = BigInteger.valueOf(p);
+		for (int row = 1; row <= result.numOfRows; row++) {
+			for (int col = 1; col <= result.numOfCols; col++) {
+				FieldElement entry = matrix.get(row, col);
+				if (entry instanceof FieldP) {
+					FieldP fieldP = (FieldP) entry;
+					if (fieldP.getLongP() != p) {
+						throw new InvalidOperationException("Entry " + entry
+								+ " is not an element of F" + p);
+					}
+					result.entries[result.index(row, col)] = fieldP
+							.getLongValue();
+				} else if (entry instanceof Rational) {
+					Rational rational = (Rational) entry;
+					BigInteger denominator = rational.getDenominator().mod(bigP);
+					if (denominator.signum() == 0) {
+						throw new InvalidOperationException("Denominator of "
+								+ entry + " is divisible by " + p);
+					}
+					result.entries[result.index(row, col)] = rational
+							.getNumerator().multiply(denominator.modInverse(bigP))
+							.mod(bigP).longValue();
+				} else {
+					throw new InvalidOperationException("Entry " + entry
+							+ " can not be mapped to F" + p);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Converts this matrix to a Matrix of FieldP entries.
+	 *
+	 * @return Matrix with the same entries
+	 */
+
+	public Matrix toMatrix() {
+		Matrix result = new Matrix(numOfRows, numOfCols);
+		for (int row = 1; row <= numOfRows; row++) {
+			for (int col = 1; col <= numOfCols; col++) {
+				result.set(row, col, new FieldP(get(row, col), p));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Zeroes this matrix and moves it to another field, so the same buffer
+	 * can be reused for systems modulo several primes.
+	 *
+	 * @param p
+	 *            prime less than 3037000500
+	 */
+
+	public void reset(long p) {
+		if (p < 2 || p >= PRIME_BOUNDARY) {
+			throw new IllegalArgumentException("p = " + p
+					+ " is out of range 2.." + PRIME_BOUNDARY);
+		}
+		this.p = p;
+		Arrays.fill(entries, 0);
+	}
+
+	public long getP() {
+		return p;
+	}
+
+	public int getRows() {
+		return numOfRows;
+	}
+
+	public int getCols() {
+		return numOfCols;
+	}
+
+	/**
+	 * Gets the smallest non-negative representant of the entry at a certain row -
+	 * and col index.
+	 *
+	 * @param rowIndex
+	 * @param colIndex
+	 * @return entry at this row - and column index
+	 * @throws InvalidOperationException
+	 *             if rowIndex or colIndex is invalid
+	 */
+
+	public long get(int rowIndex, int colIndex)
+			throws InvalidOperationException {
+		return entries[index(rowIndex, colIndex)];
+	}
+
+	/**
+	 * Sets the entry at a certain row - and col index to the equivalence class
+	 * of value.
+	 *
+	 * @param rowIndex
+	 * @param colIndex
+	 * @param value
+	 *            arbitrary representant
+	 * @throws InvalidOperationException
+	 *             if rowIndex or colIndex is invalid
+	 */
+
+	public void set(int rowIndex, int colIndex, long value)
+			throws InvalidOperationException {
+		long normalized = value % p;
+		entries[index(rowIndex, colIndex)] = normalized < 0 ? normalized + p
+				: normalized;
+	}
+
+	private int index(int rowIndex, int colIndex) {
+		if (rowIndex > this.numOfRows || rowIndex < 1) {
+			throw new InvalidOperationException("Tried row index " + rowIndex
+					+ ". Only row indices from 1 to " + this.numOfRows
+					+ " valid");
+		}
+		if (colIndex > this.numOfCols || colIndex < 1) {
+			throw new InvalidOperationException("Tried column index "
+					+ colIndex + ". Only column indices " + "from 1 to "
+					+ this.numOfCols + " valid");
+		}
+		return (rowIndex - 1) * numOfCols + colIndex - 1;
+	}
+
+	/**
+	 * @return deep copy of this matrix
+	 */
+
+	public FieldPMatrix copy() {
+		FieldPMatrix result = new FieldPMatrix(numOfRows, numOfCols, p);
+		System.arraycopy(entries, 0, result.entries, 0, entries.length);
+		return result;
+	}
+
+	/**
+	 * Transforms this matrix in place into reduced row echelon form, pivots are
+	 * searched only in the first pivotCols columns, so an augmented matrix
+	 * can be reduced by its coefficient part.
+	 *
+	 * @param pivotCols
+	 *            number of leading columns to reduce
+	 * @return rank of the first pivotCols columns
+	 */
+
+	public int gaussjordReplace(int pivotCols) {
+		return eliminate(pivotCols, null);
+	}
+
+	/**
+	 * Gauss-Jordan elimination in place.
+	 *
+	 * @param pivotCols
+	 * @param determinant
+	 *            if not null, the determinant factor collected by row swaps
+	 *            and pivot scaling is stored at index 0
+	 * @return rank of the first pivotCols columns
+	 */
+
+	private int eliminate(int pivotCols, long[] determinant) {
+		long det = 1;
+		int rank = 0;
+		for (int col = 0; col < pivotCols && rank < numOfRows; col++) {
+			int pivot = rank;
+			while (pivot < numOfRows && entries[pivot * numOfCols + col] == 0) {
+				pivot++;
+			}
+			if (pivot == numOfRows) {
+				continue;
+			}
+			if (pivot != rank) {
+				swapRowsReplace(pivot, rank);
+				det = p - det;
+			}
+
+			int pivotRow = rank * numOfCols;
+			long pivotValue = entries[pivotRow + col];
+			det = det * pivotValue % p;
+			long inverse = inverse(pivotValue);
+			for (int k = col; k < numOfCols; k++) {
+				entries[pivotRow + k] = entries[pivotRow + k] * inverse % p;
+			}
+
+			for (int row = 0; row < numOfRows; row++) {
+				int rowOffset = row * numOfCols;
+				long factor = entries[rowOffset + col];
+				if (row == rank || factor == 0) {
+					continue;
+				}
+				for (int k = col; k < numOfCols; k++) {
+					long value = entries[rowOffset + k] - factor
+							* entries[pivotRow + k] % p;
+					entries[rowOffset + k] = value < 0 ? value + p : value;
+				}
+			}
+			rank++;
+		}
+		if (determinant != null) {
+			determinant[0] = rank == pivotCols ? det % p : 0;
+		}
+		return rank;
+	}
+
+	private void swapRowsReplace(int a, int b) {
+		for (int k = 0; k < numOfCols; k++) {
+			long tmp = entries[a * numOfCols + k];
+			entries[a * numOfCols + k] = entries[b * numOfCols + k];
+			entries[b * numOfCols + k] = tmp;
+		}
+	}
+
+	/**
+	 * @return rank of this matrix
+	 */
+
+	public int rank() {
+		return copy().gaussjordReplace(numOfCols);
+	}
+
+	/**
+	 * Calculates the determinant of this matrix.
+	 *
+	 * @return smallest non-negative representant of the determinant
+	 * @throws InvalidOperationException
+	 *             if this matrix is not square
+	 */
+
+	public long det() throws InvalidOperationException {
+		if (numOfRows != numOfCols) {
+			throw new InvalidOperationException(
+					"Tried to calculate the determinant of a non-square matrix");
+		}
+		long[] determinant = new long[1];
+		copy().eliminate(numOfCols, determinant);
+		return determinant[0];
+	}
+
+	/**
+	 * Calculates the inverse of this matrix.
+	 *
+	 * @return inverse matrix
+	 * @throws InvalidOperationException
+	 *             if this matrix is not square or singular
+	 */
+
+	public FieldPMatrix inverse() throws InvalidOperationException {
+		if (numOfRows != numOfCols) {
+			throw new InvalidOperationException(
+					"Tried to calculate the inverse of a non-square matrix");
+		}
+		int n = numOfRows;
+		FieldPMatrix augmented = new FieldPMatrix(n, 2 * n, p);
+		for (int row = 0; row < n; row++) {
+			System.arraycopy(entries, row * n, augmented.entries, row * 2 * n, n);
+			augmented.entries[row * 2 * n + n + row] = 1;
+		}
+		if (augmented.gaussjordReplace(n) < n) {
+			throw new InvalidOperationException(
+					"Tried to calculate the inverse of a singular matrix");
+		}
+		FieldPMatrix result = new FieldPMatrix(n, n, p);
+		for (int row = 0; row < n; row++) {
+			System.arraycopy(augmented.entries, row * 2 * n + n, result.entries,
+					row * n, n);
+		}
+		return result;
+	}
+
+	/**
+	 * Solves the linear equation system this * x = b.
+	 *
+	 * @param b
+	 *            right hand side, arbitrary representants
+	 * @return the unique solution
+	 * @throws InvalidOperationException
+	 *             if the system has no or more than one solution
+	 */
+
+	public long[] solve(long[] b) throws InvalidOperationException {
+		if (b.length != numOfRows) {
+			throw new InvalidOperationException(
+					"Tried to solve an equation system with a coefficient matrix"
+							+ " with " + numOfRows + " rows and a"
+							+ " vector with length " + b.length
+							+ ". Not correct format!");
+		}
+		FieldPMatrix augmented = new FieldPMatrix(numOfRows, numOfCols + 1, p);
+		for (int row = 1; row <= numOfRows; row++) {
+			System.arraycopy(entries, (row - 1) * numOfCols,
+					augmented.entries, (row - 1) * (numOfCols + 1), numOfCols);
+			augmented.set(row, numOfCols + 1, b[row - 1]);
+		}
+		return augmented.solveAugmentedReplace();
+	}
+
+	/**
+	 * Solves the linear equation system, which this matrix is augmented
+	 * matrix of, i.e. the last column is the right hand side. This matrix is
+	 * reduced in place.
+	 *
+	 * @return the unique solution
+	 * @throws InvalidOperationException
+	 *             if the system has no or more than one solution
+	 */
+
+	public long[] solveAugmentedReplace() throws InvalidOperationException {
+		int unknowns = numOfCols - 1;
+		if (gaussjordReplace(unknowns) < unknowns) {
+			throw new InvalidOperationException(
+					"Equation system has no unique solution");
+		}
+		for (int row = unknowns; row < numOfRows; row++) {
+			if (entries[row * numOfCols + unknowns] != 0) {
+				throw new InvalidOperationException(
+						"Equation system is not solvable");
+			}
+		}
+		long[] solution = new long[unknowns];
+		for (int row = 0; row < unknowns; row++) {
+			solution[row] = entries[row * numOfCols + unknowns];
+		}
+		return solution;
+	}
+
+	/**
+	 * Multiplies this matrix with another matrix over the same field.
+	 *
+	 * @param anotherMatrix
+	 * @return product of this and anotherMatrix
+	 * @throws InvalidOperationException
+	 *             if the formats or fields do not match
+	 */
+
+	public FieldPMatrix multiply(FieldPMatrix anotherMatrix)
+			throws InvalidOperationException {
+		if (numOfCols != anotherMatrix.numOfRows || p != anotherMatrix.p) {
+			throw new InvalidOperationException("Tried to multiply "
+					+ numOfRows + "x" + numOfCols + " matrix over F" + p
+					+ " with " + anotherMatrix.numOfRows + "x"
+					+ anotherMatrix.numOfCols + " matrix over F"
+					+ anotherMatrix.p);
+		}
+		FieldPMatrix result = new FieldPMatrix(numOfRows,
+				anotherMatrix.numOfCols, p);
+		for (int row = 0; row < numOfRows; row++) {
+			for (int k = 0; k < numOfCols; k++) {
+				long factor = entries[row * numOfCols + k];
+				if (factor == 0) {
+					continue;
+				}
+				for (int col = 0; col < anotherMatrix.numOfCols; col++) {
+					int index = row * result.numOfCols + col;
+					result.entries[index] = (result.entries[index] + factor
+							* anotherMatrix.entries[k * anotherMatrix.numOfCols
+									+ col] % p) % p;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the multiplicative inverse of a non-zero representant by the
+	 * extended euclidean algorithm.
+	 */
+
+	private long inverse(long value) {
+		long t = 0, newT = 1;
+		long r = p, newR = value;
+		while (newR != 0) {
+			long quotient = r / newR;
+			long tmp = t - quotient * newT;
+			t = newT;
+			newT = tmp;
+			tmp = r - quotient * newR;
+			r = newR;
+			newR = tmp;
+		}
+		return t < 0 ? t + p : t;
+	}
+
+	public boolean equals(Object obj) {
+		if (!(obj instanceof FieldPMatrix)) {
+			return false;
+		}
+		FieldPMatrix other = (FieldPMatrix) obj;
+		return p == other.p && numOfRows == other.numOfRows
+				&& numOfCols == other.numOfCols
+				&& Arrays.equals(entries, other.entries);
+	}
+
+	public int hashCode() {
+		return Arrays.hashCode(entries);
+	}
+
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		for (int row = 1; row <= numOfRows; row++) {
+			for (int col = 1; col <= numOfCols; col++) {
+				result.append(get(row, col)).append('\t');
+			}
+			result.append('\n');
+		}
+		return result.toString();
+	}
+}
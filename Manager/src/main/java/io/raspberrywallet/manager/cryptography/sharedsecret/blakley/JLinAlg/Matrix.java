@@ -169,6 +169,21 @@ public class Matrix implements Serializable {
 		return this.entries;
 	}
 
+	/**
+	 * Adapts this Matrix to a FieldPMatrix, which does all computations in Fp
+	 * on long values. Entries have to be FieldP or Rational.
+	 * 
+	 * @param p
+	 *            prime less than 3037000500
+	 * @return FieldPMatrix with the same entries modulo p
+	 * @throws InvalidOperationException
+	 *             if an entry can not be represented in Fp
+	 */
+
+	public FieldPMatrix toFieldPMatrix(long p) throws InvalidOperationException {
+		return FieldPMatrix.fromMatrix(this, p);
+	}
+
 	/**
 	 * Gets the entry of this Matrix at a certain row - and col index.
 	 * 
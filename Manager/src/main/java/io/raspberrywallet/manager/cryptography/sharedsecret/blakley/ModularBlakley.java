@@ -0,0 +1,215 @@
+package io.raspberrywallet.manager.cryptography.sharedsecret.blakley;
+
+import io.raspberrywallet.manager.cryptography.sharedsecret.blakley.JLinAlg.FieldPMatrix;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * <p> Solves Blakley's scheme like {@link Blakley#solutionKey(BigInteger[][])}, but without rational arithmetic. </p>
+ * <p> The integer system is solved modulo several primes below 2^31 by {@link FieldPMatrix}, so every step
+ * of Gaussian elimination works on longs in place. Coordinates are then reconstructed by Chinese remainder theorem.
+ * Product of the primes exceeds twice the Hadamard bound of the system, which bounds absolute value of every
+ * coordinate (Cramer's rule), so mapping the result into symmetric range gives the exact, possibly negative, value. </p>
+ */
+public class ModularBlakley {
+
+    private final static int PRIME_BITS = 31;
+    private final static int WORD_BITS = 32;
+    private final static long WORD_MASK = 0xffffffffL;
+    /**
+     * Number of primes, modulo which the system can be singular, tolerated before it is considered unsolvable
+     */
+    private final static int MAX_SINGULAR_PRIMES = 4;
+
+    /**
+     * Primes below 2^31 in descending order, grown on demand
+     */
+    private static long[] primes = new long[0];
+
+    /**
+     * Solve a group of key using Blakley's scheme
+     *
+     * @param cords array of secret keys (minimal of t keys), key contains t coefficients followed by the sum
+     * @return secret in the same format as {@link Blakley#solutionKey(BigInteger[][])}
+     * @throws IllegalArgumentException when the keys do not determine a unique solution
+     */
+    public static byte[] solutionKey(BigInteger[][] cords) {
+        BigInteger[] solution = solve(cords);
+
+        byte[][] parts = new byte[solution.length][];
+        int size = 0;
+        for (int i = 0; i < solution.length; i++) {
+            parts[i] = solution[i].toByteArray();
+            size += parts[i].length;
+        }
+
+        // coordinates are laid out from the end, the first one is the least significant
+        byte[] ret = new byte[size];
+        int pos = size;
+        for (byte[] part : parts) {
+            pos -= part.length;
+            System.arraycopy(part, 0, ret, pos, part.length);
+        }
+        return ret;
+    }
+
+    /**
+     * @param cords m >= t equations, each with t coefficients followed by the sum
+     * @return t integer coordinates of the intersection point
+     */
+    static BigInteger[] solve(BigInteger[][] cords) {
+        final int rows = cords.length;
+        final int unknowns = cords[0].length - 1;
+        final int cols = unknowns + 1;
+        if (rows < unknowns)
+            throw new IllegalArgumentException("at least " + unknowns + " keys are needed, got " + rows);
+
+        int[][] magnitudes = new int[rows * cols][];
+        boolean[] negative = new boolean[rows * cols];
+        long boundBits = 1;
+        for (int r = 0; r < rows; r++) {
+            if (cords[r].length != cols)
+                throw new IllegalArgumentException("keys have different lengths");
+            int maxBits = 0;
+            for (int c = 0; c < cols; c++) {
+                BigInteger value = cords[r][c];
+                magnitudes[r * cols + c] = toWords(value.abs());
+                negative[r * cols + c] = value.signum() < 0;
+                maxBits = Math.max(maxBits, value.bitLength());
+            }
+            // Euclidean norm of the row is at most sqrt(cols) * 2^maxBits
+            boundBits += maxBits + (32 - Integer.numberOfLeadingZeros(cols));
+        }
+
+        int needed = (int) ((boundBits + 1) / (PRIME_BITS - 1) + 1);
+        long[] usedPrimes = new long[needed + MAX_SINGULAR_PRIMES];
+        long[] usedInverses = new long[usedPrimes.length];
+        long[][] residues = new long[unknowns][needed];
+
+        // one working buffer for the whole solve, refilled modulo every prime
+        FieldPMatrix system = new FieldPMatrix(rows, cols, prime(0));
+        int found = 0;
+        for (int i = 0; found < needed; i++) {
+            if (i - found >= MAX_SINGULAR_PRIMES)
+                throw new IllegalArgumentException("keys do not determine a unique solution");
+
+            long p = prime(i);
+            system.reset(p);
+            for (int r = 0; r < rows; r++)
+                for (int c = 0; c < cols; c++)
+                    system.set(r + 1, c + 1, residue(magnitudes[r * cols + c], negative[r * cols + c], p));
+
+            if (system.gaussjordReplace(unknowns) < unknowns)
+                continue;
+            // redundant keys have to agree with the solution
+            for (int r = unknowns + 1; r <= rows; r++)
+                if (system.get(r, cols) != 0)
+                    throw new IllegalArgumentException("keys are inconsistent");
+
+            usedPrimes[found] = p;
+            for (int c = 0; c < unknowns; c++)
+                residues[c][found] = system.get(c + 1, cols);
+            found++;
+        }
+
+        long[] primesUsed = Arrays.copyOf(usedPrimes, needed);
+        garnerInverses(primesUsed, usedInverses);
+        BigInteger modulus = BigInteger.ONE;
+        for (long p : primesUsed)
+            modulus = modulus.multiply(BigInteger.valueOf(p));
+        BigInteger halfModulus = modulus.shiftRight(1);
+
+        BigInteger[] solution = new BigInteger[unknowns];
+        long[] mixedRadix = new long[needed];
+        for (int c = 0; c < unknowns; c++) {
+            BigInteger value = reconstruct(residues[c], primesUsed, usedInverses, mixedRadix);
+            solution[c] = value.compareTo(halfModulus) > 0 ? value.subtract(modulus) : value;
+        }
+        return solution;
+    }
+
+    /**
+     * Garner's algorithm, the value is accumulated in BigInteger only once
+     */
+    private static BigInteger reconstruct(long[] residues, long[] primes, long[] inverses, long[] mixedRadix) {
+        for (int j = 0; j < primes.length; j++) {
+            long p = primes[j];
+            // value of already known mixed radix digits modulo p
+            long known = 0;
+            for (int i = j - 1; i >= 0; i--)
+                known = (known * (primes[i] % p) + mixedRadix[i]) % p;
+            long digit = (residues[j] - known) % p;
+            if (digit < 0)
+                digit += p;
+            mixedRadix[j] = digit * inverses[j] % p;
+        }
+
+        BigInteger value = BigInteger.valueOf(mixedRadix[primes.length - 1]);
+        for (int j = primes.length - 2; j >= 0; j--)
+            value = value.multiply(BigInteger.valueOf(primes[j])).add(BigInteger.valueOf(mixedRadix[j]));
+        return value;
+    }
+
+    /**
+     * @param inverses filled with inverse of primes[0] * ... * primes[j-1] modulo primes[j]
+     */
+    private static void garnerInverses(long[] primes, long[] inverses) {
+        for (int j = 0; j < primes.length; j++) {
+            long p = primes[j];
+            long product = 1;
+            for (int i = 0; i < j; i++)
+                product = product * (primes[i] % p) % p;
+            inverses[j] = inverse(product, p);
+        }
+    }
+
+    private static int[] toWords(BigInteger magnitude) {
+        int[] words = new int[(magnitude.bitLength() + WORD_BITS - 1) / WORD_BITS];
+        for (int i = 0; i < words.length; i++)
+            words[words.length - 1 - i] = magnitude.shiftRight(i * WORD_BITS).intValue();
+        return words;
+    }
+
+    /**
+     * Horner evaluation of big endian 32 bit words modulo p, p < 2^31 so the shifted remainder fits into long
+     */
+    private static long residue(int[] words, boolean negative, long p) {
+        long result = 0;
+        for (int word : words)
+            result = ((result << WORD_BITS) | (word & WORD_MASK)) % p;
+        return negative && result != 0 ? p - result : result;
+    }
+
+    private static long inverse(long a, long p) {
+        long t = 0, newT = 1;
+        long r = p, newR = a;
+        while (newR != 0) {
+            long quotient = r / newR;
+            long tmp = t - quotient * newT;
+            t = newT;
+            newT = tmp;
+            tmp = r - quotient * newR;
+            r = newR;
+            newR = tmp;
+        }
+        return t < 0 ? t + p : t;
+    }
+
+    private static synchronized long prime(int index) {
+        if (index < primes.length)
+            return primes[index];
+
+        int size = Math.max(index + 1, primes.length * 2);
+        long[] grown = Arrays.copyOf(primes, size);
+        long candidate = primes.length == 0 ? (1L << PRIME_BITS) : primes[primes.length - 1];
+        for (int i = primes.length; i < size; i++) {
+            do {
+                candidate--;
+            } while (!BigInteger.valueOf(candidate).isProbablePrime(64));
+            grown[i] = candidate;
+        }
+        primes = grown;
+        return primes[index];
+    }
+}
@@ -0,0 +1,153 @@
+package io.raspberrywallet.manager.cryptography.sharedsecret.shamir;
+
+import io.raspberrywallet.manager.common.ArrayDestroyer;
+
+import java.security.SecureRandom;
+
+/**
+ * <p> Shamir's scheme over GF(256). Every byte of the secret is shared independently by polynomial
+ * of degree t-1, so no prime has to be generated and shares are as long as the secret. </p>
+ * <p> Field is defined by AES polynomial x^8 + x^4 + x^3 + x + 1, multiplication uses logarithm tables. </p>
+ */
+public class GF256Shamir {
+
+    private final static int FIELD_SIZE = 256;
+    private final static int GROUP_ORDER = FIELD_SIZE - 1;
+    private final static int REDUCING_POLYNOMIAL = 0x11b;
+    private final static int GENERATOR = 0x03;
+
+    /**
+     * Maximal number of shares, x has to be non zero element of the field
+     */
+    public final static int MAX_SHARES = GROUP_ORDER;
+
+    private final static int[] EXP = new int[2 * GROUP_ORDER];
+    private final static int[] LOG = new int[FIELD_SIZE];
+
+    private final static SecureRandom random = new SecureRandom();
+
+    static {
+        int element = 1;
+        for (int i = 0; i < GROUP_ORDER; i++) {
+            EXP[i] = element;
+            EXP[i + GROUP_ORDER] = element;
+            LOG[element] = i;
+            element = multiplySlow(element, GENERATOR);
+        }
+    }
+
+    private static int multiplySlow(int a, int b) {
+        int result = 0;
+        while (b != 0) {
+            if ((b & 1) != 0)
+                result ^= a;
+            a <<= 1;
+            if ((a & FIELD_SIZE) != 0)
+                a ^= REDUCING_POLYNOMIAL;
+            b >>= 1;
+        }
+        return result;
+    }
+
+    static int multiply(int a, int b) {
+        if (a == 0 || b == 0)
+            return 0;
+        return EXP[LOG[a] + LOG[b]];
+    }
+
+    static int divide(int a, int b) {
+        if (b == 0)
+            throw new ArithmeticException("division by zero in GF(256)");
+        if (a == 0)
+            return 0;
+        return EXP[LOG[a] + GROUP_ORDER - LOG[b]];
+    }
+
+    /**
+     * Split secret into shares
+     *
+     * @param secret secret to share
+     * @param n      number of shares
+     * @param t      number of shares for solve Shamir scheme
+     * @return array of n shares with x equal to 1..n
+     * @throws ShamirException when parameters are out of range
+     */
+    public static GF256ShamirKey[] split(byte[] secret, int n, int t) throws ShamirException {
+        if (secret.length == 0)
+            throw new ShamirException("secret can not be empty");
+        if (t < 1)
+            throw new ShamirException("number of need shares must be positive");
+        if (t > n)
+            throw new ShamirException("number of need shares greater than number of shares");
+        if (n > MAX_SHARES)
+            throw new ShamirException("number of shares greater than " + MAX_SHARES);
+
+        // coefficients of x^1..x^(t-1) for every byte of the secret, coefficient of x^0 is the secret byte
+        byte[] coefficients = new byte[(t - 1) * secret.length];
+        random.nextBytes(coefficients);
+
+        GF256ShamirKey[] keys = new GF256ShamirKey[n];
+        for (int x = 1; x <= n; x++) {
+            byte[] y = new byte[secret.length];
+            for (int i = 0; i < secret.length; i++)
+                y[i] = (byte) evaluatePolynomial(secret[i], coefficients, i * (t - 1), t - 1, x);
+            keys[x - 1] = new GF256ShamirKey(x, y);
+        }
+
+        ArrayDestroyer.destroy(coefficients);
+        return keys;
+    }
+
+    /**
+     * Horner evaluation of constant + c[offset] * x + ... + c[offset + degree - 1] * x^degree
+     */
+    private static int evaluatePolynomial(byte constant, byte[] coefficients, int offset, int degree, int x) {
+        int result = 0;
+        for (int i = offset + degree - 1; i >= offset; i--)
+            result = multiply(result, x) ^ (coefficients[i] & 0xff);
+        return multiply(result, x) ^ (constant & 0xff);
+    }
+
+    /**
+     * Solve Shamir's scheme by Lagrange interpolation at x = 0
+     *
+     * @param keys at least t shares of the same secret
+     * @return secret
+     * @throws ShamirException when shares are not consistent
+     */
+    public static byte[] combine(GF256ShamirKey... keys) throws ShamirException {
+        if (keys.length == 0)
+            throw new ShamirException("no shares to combine");
+
+        int length = keys[0].getY().length;
+        int[] basis = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].getY().length != length)
+                throw new ShamirException("shares have different lengths");
+
+            int xi = keys[i].getX();
+            int numerator = 1;
+            int denominator = 1;
+            for (int j = 0; j < keys.length; j++) {
+                if (j == i)
+                    continue;
+                int xj = keys[j].getX();
+                if (xj == xi)
+                    throw new ShamirException("repeated share x = " + xi);
+                // subtraction in GF(2^8) is xor, 0 - xj = xj
+                numerator = multiply(numerator, xj);
+                denominator = multiply(denominator, xi ^ xj);
+            }
+            basis[i] = divide(numerator, denominator);
+        }
+
+        byte[] secret = new byte[length];
+        for (int b = 0; b < length; b++) {
+            int value = 0;
+            for (int i = 0; i < keys.length; i++)
+                value ^= multiply(basis[i], keys[i].getY()[b] & 0xff);
+            secret[b] = (byte) value;
+        }
+        return secret;
+    }
+}
@@ -0,0 +1,55 @@
+package io.raspberrywallet.manager.cryptography.sharedsecret.shamir;
+
+import io.raspberrywallet.manager.common.ArrayDestroyer;
+import io.raspberrywallet.manager.common.interfaces.Destroyable;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * <p> Contains a share of GF256Shamir scheme, y[i] = poly_i(x) for every byte of the secret </p>
+ * <p> Binary format: FORMAT_TAG, x, y. Legacy ShamirKey starts with Base58 character,
+ * so both formats can be told apart by the first byte. </p>
+ */
+public class GF256ShamirKey implements Destroyable {
+
+    final static byte FORMAT_TAG = 0x02;
+    private final static int HEADER_SIZE = 2;
+
+    @Getter
+    private final int x;
+    @Getter
+    private final byte[] y;
+
+    public GF256ShamirKey(int x, byte[] y) {
+        if (x < 1 || x > GF256Shamir.MAX_SHARES)
+            throw new IllegalArgumentException("x must be in range 1.." + GF256Shamir.MAX_SHARES);
+        this.x = x;
+        this.y = y;
+    }
+
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[HEADER_SIZE + y.length];
+        bytes[0] = FORMAT_TAG;
+        bytes[1] = (byte) x;
+        System.arraycopy(y, 0, bytes, HEADER_SIZE, y.length);
+        return bytes;
+    }
+
+    public static boolean isEncoded(@NotNull byte[] bytes) {
+        return bytes.length > HEADER_SIZE && bytes[0] == FORMAT_TAG;
+    }
+
+    @NotNull
+    public static GF256ShamirKey fromByteArray(@NotNull byte[] bytes) {
+        if (!isEncoded(bytes))
+            throw new IllegalArgumentException("bytes are not GF256ShamirKey");
+        return new GF256ShamirKey(bytes[1] & 0xff, Arrays.copyOfRange(bytes, HEADER_SIZE, bytes.length));
+    }
+
+    @Override
+    public void destroy() {
+        ArrayDestroyer.destroy(y);
+    }
+}
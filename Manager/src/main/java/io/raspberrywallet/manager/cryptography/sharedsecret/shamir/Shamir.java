@@ -8,6 +8,8 @@ import java.security.SecureRandom;
 
 public class Shamir {
 
+    private final static SecureRandom random = new SecureRandom();
+
     /**
      * Create a share using Shamir's scheme
      *
@@ -30,7 +32,7 @@ public class Shamir {
     }
 
     /**
-     * Calculate polynomial
+     * Calculate polynomial using Horner's method
      *
      * @param s parameters of polynomial
      * @param x variable of polynomial
@@ -39,10 +41,9 @@ public class Shamir {
      */
     private static BigInteger calculatePolynomial(BigInteger s[], BigInteger x, BigInteger p) {
         BigInteger result = BigInteger.ZERO;
-        for (int i = 0; i < s.length; i++)
-            result = result.add(s[i].multiply(x.pow(i)));
+        for (int i = s.length - 1; i >= 0; i--)
+            result = result.multiply(x).add(s[i]).mod(p);
 
-        result = result.mod(p);
         return result;
     }
 
@@ -66,7 +67,7 @@ public class Shamir {
         //System.out.println("s(0) = " + secret + " (secret)" );
 
         for (int i = 1; i < t; i++) {
-            s[i] = new BigInteger(numBits, new SecureRandom());
+            s[i] = new BigInteger(numBits, random);
             //System.out.println("s("+i+") = " +s[i]);
         }
 
@@ -118,12 +119,12 @@ public class Shamir {
         if (t > n)
             throw new ShamirException("number of need shares greater than number of shares");
 
-        BigInteger prime = BigInteger.probablePrime(numBits, new SecureRandom());
+        BigInteger prime = BigInteger.probablePrime(numBits, random);
 
         BigInteger fx, x;
         for (int i = 1; i <= n; i++) {
             do {
-                x = new BigInteger(numBits, new SecureRandom());
+                x = new BigInteger(numBits, random);
             } while (isRepeat(x, keys));
             fx = calculatePolynomial(polynomialParams, x, prime);
             keys[i - 1] = new ShamirKey();
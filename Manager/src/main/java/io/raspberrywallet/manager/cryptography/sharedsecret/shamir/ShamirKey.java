@@ -5,14 +5,29 @@ import lombok.Getter;
 import lombok.Setter;
 import org.bitcoinj.core.Base58;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 /**
  * <p> Contains a Shamir's key <br>
  * f = poly(x) mod p </p>
+ * <p> Keys are stored in versioned binary format, legacy Base58(p):Base58(f):Base58(x) keys can still be read </p>
  */
 public class ShamirKey {
+
+    /**
+     * First byte and version of the binary format, legacy format starts with Base58 character
+     */
+    final static byte FORMAT_TAG = 0x01;
+    private final static byte FLAG_PRIME_OMITTED = 0x01;
+    // in bytes
+    private final static int HEADER_SIZE = 2;
+    private final static int LENGTH_SIZE = 2;
+    private final static int MAX_PART_SIZE = 0xffff;
+
     @Getter
     @Setter
     private BigInteger p;
@@ -33,22 +48,99 @@ public class ShamirKey {
         this.x = x;
     }
 
+    /**
+     * @return key encoded in binary format including the prime
+     */
     public byte[] toByteArray() {
-        String baseP = Base58.encode(p.toByteArray());
-        String baseF = Base58.encode(f.toByteArray());
-        String baseX = Base58.encode(x.toByteArray());
+        return encode(true);
+    }
 
-        String total = baseP + ":" + baseF + ":" + baseX;
-        return total.getBytes();
+    /**
+     * @return key encoded in binary format without the prime, which is the same for all keys of the secret
+     * and has to be stored once and passed to {@link #fromByteArray(byte[], BigInteger)}
+     */
+    public byte[] toByteArrayWithoutPrime() {
+        return encode(false);
     }
 
     /**
-     * @param bytes three parameters p,f and x encoded in UTF-8 and formatted like Base58(p):Base58(x):Base58(f)
+     * Binary format: FORMAT_TAG, flags, then length prefixed two's-complement p (unless omitted), f and x.
+     * Lengths are unsigned 16 bit big endian.
+     */
+    private byte[] encode(boolean withPrime) {
+        byte[] pBytes = withPrime ? p.toByteArray() : new byte[0];
+        byte[] fBytes = f.toByteArray();
+        byte[] xBytes = x.toByteArray();
+        int parts = withPrime ? 3 : 2;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + parts * LENGTH_SIZE
+                + pBytes.length + fBytes.length + xBytes.length);
+        buffer.put(FORMAT_TAG);
+        buffer.put(withPrime ? 0 : FLAG_PRIME_OMITTED);
+        if (withPrime)
+            putPart(buffer, pBytes);
+        putPart(buffer, fBytes);
+        putPart(buffer, xBytes);
+        return buffer.array();
+    }
+
+    private static void putPart(ByteBuffer buffer, byte[] part) {
+        if (part.length > MAX_PART_SIZE)
+            throw new IllegalArgumentException("key part is too long");
+        buffer.putShort((short) part.length);
+        buffer.put(part);
+    }
+
+    private static BigInteger getPart(ByteBuffer buffer) {
+        int length = buffer.getShort() & MAX_PART_SIZE;
+        byte[] part = new byte[length];
+        buffer.get(part);
+        return new BigInteger(part);
+    }
+
+    /**
+     * @param bytes key in binary format with the prime or in legacy format
      * @return ShamirKey of p, f and x
      */
     @NotNull
     public static ShamirKey fromByteArray(@NotNull byte[] bytes) {
+        return fromByteArray(bytes, null);
+    }
+
+    /**
+     * @param bytes key in binary or legacy format
+     * @param p     prime stored once for all keys, used when it is omitted in bytes
+     * @return ShamirKey of p, f and x
+     */
+    @NotNull
+    public static ShamirKey fromByteArray(@NotNull byte[] bytes, @Nullable BigInteger p) {
         if (bytes.length <= 0) throw new IllegalArgumentException("bytes can not be empty");
+        if (bytes[0] != FORMAT_TAG)
+            return fromLegacyByteArray(bytes);
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            buffer.get();
+            byte flags = buffer.get();
+            if ((flags & FLAG_PRIME_OMITTED) == 0)
+                p = getPart(buffer);
+            else if (p == null)
+                throw new IllegalArgumentException("prime is not stored in the key and was not given");
+
+            BigInteger f = getPart(buffer);
+            BigInteger x = getPart(buffer);
+            return new ShamirKey(p, f, x);
+        } catch (BufferUnderflowException | NumberFormatException e) {
+            throw new IllegalArgumentException("truncated or malformed ShamirKey", e);
+        }
+    }
+
+    /**
+     * @param bytes three parameters p,f and x encoded in UTF-8 and formatted like Base58(p):Base58(x):Base58(f)
+     * @return ShamirKey of p, f and x
+     */
+    @NotNull
+    private static ShamirKey fromLegacyByteArray(@NotNull byte[] bytes) {
         String total = new String(bytes);
 
         String[] parts = total.split(":");
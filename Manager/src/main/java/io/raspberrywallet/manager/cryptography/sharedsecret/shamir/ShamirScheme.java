@@ -0,0 +1,93 @@
+package io.raspberrywallet.manager.cryptography.sharedsecret.shamir;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p> Implementations of Shamir's scheme used to split the wallet seed into module key parts. </p>
+ * <p> Key parts are self describing, so a wallet can be unlocked regardless of the scheme set in configuration. </p>
+ */
+public enum ShamirScheme {
+
+    /**
+     * Shamir with BigInteger polynomial over prime as long as the secret, slow for long seeds
+     */
+    @JsonProperty("prime")
+    PRIME_FIELD {
+        @Override
+        public ShamirShares split(byte[] secret, int n, int t) throws ShamirException {
+            int numBits = secret.length * 8; //We need bits not bytes
+            BigInteger[] params = Shamir.generateParams(t, numBits, secret);
+            ShamirKey[] keys = Shamir.generateKeys(n, t, numBits, params);
+            List<byte[]> keyParts = new ArrayList<>(n);
+            for (ShamirKey key : keys)
+                keyParts.add(key.toByteArrayWithoutPrime());
+            return new ShamirShares(keyParts, keys[0].getP().toByteArray());
+        }
+
+        @Override
+        public byte[] combine(List<byte[]> keyParts, @Nullable byte[] parameters) {
+            BigInteger p = parameters == null ? null : new BigInteger(parameters);
+            ShamirKey[] keys = keyParts.stream()
+                    .map(keyPart -> ShamirKey.fromByteArray(keyPart, p))
+                    .toArray(ShamirKey[]::new);
+            return Shamir.calculateLagrange(keys);
+        }
+    },
+
+    /**
+     * Byte-wise Shamir over GF(256), see {@link GF256Shamir}
+     */
+    @JsonProperty("gf256")
+    GF256 {
+        @Override
+        public ShamirShares split(byte[] secret, int n, int t) throws ShamirException {
+            List<byte[]> keyParts = new ArrayList<>(n);
+            for (GF256ShamirKey key : GF256Shamir.split(secret, n, t)) {
+                keyParts.add(key.toByteArray());
+                key.destroy();
+            }
+            return new ShamirShares(keyParts, null);
+        }
+
+        @Override
+        public byte[] combine(List<byte[]> keyParts, @Nullable byte[] parameters) throws ShamirException {
+            GF256ShamirKey[] keys = keyParts.stream().map(GF256ShamirKey::fromByteArray).toArray(GF256ShamirKey[]::new);
+            try {
+                return GF256Shamir.combine(keys);
+            } finally {
+                for (GF256ShamirKey key : keys)
+                    key.destroy();
+            }
+        }
+    };
+
+    /**
+     * @param secret secret to share
+     * @param n      number of key parts
+     * @param t      number of key parts needed to recover the secret
+     * @return n encoded key parts and parameters common to all of them
+     */
+    public abstract ShamirShares split(byte[] secret, int n, int t) throws ShamirException;
+
+    /**
+     * @param keyParts   at least t encoded key parts created by split of this scheme
+     * @param parameters parameters returned by split, null when they are unknown or stored in key parts
+     * @return secret
+     */
+    public abstract byte[] combine(List<byte[]> keyParts, @Nullable byte[] parameters) throws ShamirException;
+
+    /**
+     * @param keyPart encoded key part
+     * @return scheme which created the key part
+     */
+    @NotNull
+    public static ShamirScheme of(@NotNull byte[] keyPart) {
+        return GF256ShamirKey.isEncoded(keyPart) ? GF256 : PRIME_FIELD;
+    }
+}
@@ -0,0 +1,27 @@
+package io.raspberrywallet.manager.cryptography.sharedsecret.shamir;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * <p> Result of splitting a secret by ShamirScheme </p>
+ */
+@Getter
+@AllArgsConstructor
+public class ShamirShares {
+
+    /**
+     * Encoded key parts, one for each module
+     */
+    private final List<byte[]> keyParts;
+
+    /**
+     * Public parameters common to all key parts, which are stored once per wallet instead of in every key part,
+     * e.g. the prime of {@link ShamirScheme#PRIME_FIELD}. Null when the scheme has none.
+     */
+    @Nullable
+    private final byte[] parameters;
+}
@@ -6,6 +6,7 @@ import io.raspberrywallet.manager.Configuration;
 import io.raspberrywallet.manager.common.interfaces.Destroyable;
 import io.raspberrywallet.manager.cryptography.crypto.AESEncryptedObject;
 import io.raspberrywallet.manager.cryptography.crypto.CryptoObject;
+import io.raspberrywallet.manager.cryptography.crypto.algorithms.AESCipherParams;
 import io.raspberrywallet.manager.cryptography.crypto.exceptions.DecryptionException;
 import io.raspberrywallet.manager.cryptography.crypto.exceptions.EncryptionException;
 import lombok.Getter;
@@ -13,14 +14,26 @@ import lombok.Setter;
 import org.apache.commons.lang.SerializationUtils;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Database implements Destroyable {
 
     private final static String DATABASE_FILE_NAME = "database.bin";
+    private final static String JOURNAL_FILE_NAME = "database.journal";
+    private final static String TEMP_FILE_SUFFIX = ".tmp";
+    /**
+     * Number of journal records after which they are compacted into a new snapshot
+     */
+    private final static int COMPACTION_THRESHOLD = 16;
 
     @Getter
     @Setter
@@ -28,18 +41,33 @@ public class Database implements Destroyable {
     private WalletEntity wallet = null;
 
     private final File databaseFile;
+    /**
+     * Changes made since the last snapshot was written to databaseFile
+     */
+    private final DatabaseJournal journal;
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "database-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
     private String password;
+    /**
+     * AES parameters of the last encrypted or decrypted database, their key salt is reused so the derived key
+     * is cached for the session and following saves only pay for the AES pass
+     */
+    private AESCipherParams cipherParams;
 
     public Database(Configuration config) {
         databaseFile = new File(config.getBasePathPrefix(), DATABASE_FILE_NAME);
+        journal = new DatabaseJournal(new File(config.getBasePathPrefix(), JOURNAL_FILE_NAME));
     }
 
-    public void setPassword(String password) throws EncryptionException, DecryptionException, IOException {
+    public synchronized void setPassword(String password) throws EncryptionException, DecryptionException, IOException {
         this.password = password;
         initDatabase();
     }
 
-    void initDatabase() throws IOException, DecryptionException, EncryptionException {
+    synchronized void initDatabase() throws IOException, DecryptionException, EncryptionException {
         if (!databaseFile.exists()) {
             databaseFile.getParentFile().mkdirs();
             databaseFile.createNewFile();
@@ -56,8 +84,30 @@ public class Database implements Destroyable {
         destroy();
         byte[] encryptedDatabase = Files.readAllBytes(file.toPath());
         WalletEntity wallet = decrypt(encryptedDatabase);
+        replayJournal(wallet);
         Logger.info("decrypted wallet " + wallet.toString());
         setWallet(wallet);
+        scheduleCompaction();
+    }
+
+    /**
+     * Applies changes that were journaled after the snapshot had been written.
+     * Records already contained in the snapshot are skipped, because the journal is cleared after the snapshot
+     * is renamed, so a power cut in between leaves them in both.
+     */
+    private void replayJournal(WalletEntity wallet) throws IOException, DecryptionException {
+        for (byte[] encryptedRecord : journal.readAll()) {
+            AESEncryptedObject<JournalRecord> encryptedObject =
+                    (AESEncryptedObject<JournalRecord>) SerializationUtils.deserialize(encryptedRecord);
+            JournalRecord record = CryptoObject.decrypt(encryptedObject, password);
+            if (record.getSequence() <= wallet.getJournalSequence())
+                continue;
+
+            wallet.getParts().addAll(record.getAddedParts());
+            wallet.setRequired(record.getRequired());
+            wallet.setShamirParameters(record.getShamirParameters());
+            wallet.setJournalSequence(record.getSequence());
+        }
     }
 
     public byte[] encrypt() throws EncryptionException {
@@ -72,11 +122,16 @@ public class Database implements Destroyable {
     public byte[] encrypt(WalletEntity wallet) throws EncryptionException {
 
         AESEncryptedObject<WalletEntity> encryptedData =
-                CryptoObject.encrypt(wallet, password);
+                CryptoObject.encrypt(wallet, password, nextCipherParams());
 
         return SerializationUtils.serialize(encryptedData);
     }
 
+    private AESCipherParams nextCipherParams() {
+        cipherParams = cipherParams == null ? new AESCipherParams() : cipherParams.withNewIv();
+        return cipherParams;
+    }
+
     /**
      * Use decrypt() instead.
      * This method will become private.
@@ -86,39 +141,119 @@ public class Database implements Destroyable {
         AESEncryptedObject<WalletEntity> encryptedObject =
                 (AESEncryptedObject<WalletEntity>) SerializationUtils.deserialize(data);
 
-        return CryptoObject.decrypt(encryptedObject, password);
+        WalletEntity wallet = CryptoObject.decrypt(encryptedObject, password);
+        cipherParams = encryptedObject.getCipherParams();
+        return wallet;
     }
 
-    public void saveWallet() throws IOException, EncryptionException {
+    public synchronized void saveWallet() throws IOException, EncryptionException {
         setWallet(getWallet());
         saveDatabase();
     }
 
+    /**
+     * Writes the whole wallet into a temporary file, which atomically replaces the snapshot,
+     * so databaseFile always contains either the previous or the new snapshot, never a half written one.
+     */
     private void saveDatabase() throws IOException, EncryptionException {
         if (getWallet() == null)
             setWallet(new WalletEntity());
 
-        Files.write(databaseFile.toPath(), encrypt());
+        File tempFile = new File(databaseFile.getParentFile(), DATABASE_FILE_NAME + TEMP_FILE_SUFFIX);
+        try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+            outputStream.write(encrypt());
+            outputStream.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), databaseFile.toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        journal.clear();
+    }
+
+    /**
+     * Appends only the change to the journal, which costs O(change) instead of rewriting the whole snapshot
+     */
+    private void appendToJournal(Collection<KeyPartEntity> addedParts) throws IOException, EncryptionException {
+        long sequence = wallet.getJournalSequence() + 1;
+        JournalRecord record = new JournalRecord(sequence, new ArrayList<>(addedParts), wallet.getRequired(),
+                wallet.getShamirParameters());
+        AESEncryptedObject<JournalRecord> encryptedRecord = CryptoObject.encrypt(record, password, nextCipherParams());
+
+        journal.append(SerializationUtils.serialize(encryptedRecord));
+        wallet.setJournalSequence(sequence);
+        scheduleCompaction();
+    }
+
+    private void scheduleCompaction() {
+        if (journal.getRecordsCount() < COMPACTION_THRESHOLD)
+            return;
+
+        compactionExecutor.execute(this::compact);
+    }
+
+    private synchronized void compact() {
+        if (wallet == null || journal.getRecordsCount() < COMPACTION_THRESHOLD)
+            return;
+
+        try {
+            saveDatabase();
+        } catch (IOException | EncryptionException e) {
+            Logger.err("Database compaction failed: " + e.getMessage());
+            e.printStackTrace();
+        }
     }
 
     public Optional<KeyPartEntity> getKeypartForModuleId(String id) {
         return wallet.getParts().stream().filter(keyPart -> keyPart.getModule().equals(id)).findFirst();
     }
 
-    public boolean addKeyPart(KeyPartEntity keyPartEntity) {
+    /**
+     * @return number of key parts required to recover the secret or 0 if it is unknown
+     */
+    public int getRequiredKeyParts() {
+        return wallet == null ? 0 : wallet.getRequired();
+    }
+
+    /**
+     * @return public parameters of the Shamir's scheme stored once for all key parts or null
+     */
+    public byte[] getShamirParameters() {
+        return wallet == null ? null : wallet.getShamirParameters();
+    }
+
+    public synchronized boolean addKeyPart(KeyPartEntity keyPartEntity) {
         final boolean success = wallet.getParts().add(keyPartEntity);
         try {
-            saveDatabase();
+            appendToJournal(Collections.singletonList(keyPartEntity));
         } catch (IOException | EncryptionException e) {
             e.printStackTrace();
         }
         return success;
     }
 
-    public boolean addAllKeyParts(Collection<KeyPartEntity> keyPartEntities) {
+    public synchronized boolean addAllKeyParts(Collection<KeyPartEntity> keyPartEntities) {
+        return addAllKeyParts(keyPartEntities, wallet.getRequired());
+    }
+
+    /**
+     * @param keyPartEntities key parts to store
+     * @param required        number of key parts required to recover the secret
+     */
+    public synchronized boolean addAllKeyParts(Collection<KeyPartEntity> keyPartEntities, int required) {
+        return addAllKeyParts(keyPartEntities, required, wallet.getShamirParameters());
+    }
+
+    /**
+     * @param keyPartEntities  key parts to store
+     * @param required         number of key parts required to recover the secret
+     * @param shamirParameters public parameters of the Shamir's scheme common to all key parts
+     */
+    public synchronized boolean addAllKeyParts(Collection<KeyPartEntity> keyPartEntities, int required,
+                                               byte[] shamirParameters) {
         final boolean success = wallet.getParts().addAll(keyPartEntities);
+        wallet.setRequired(required);
+        wallet.setShamirParameters(shamirParameters);
         try {
-            saveDatabase();
+            appendToJournal(keyPartEntities);
         } catch (IOException | EncryptionException e) {
             e.printStackTrace();
         }
@@ -0,0 +1,107 @@
+package io.raspberrywallet.manager.database;
+
+import com.stasbar.Logger;
+import lombok.Getter;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only journal stored beside the database snapshot.
+ * Every record is framed as 4 bytes big endian length followed by the record bytes,
+ * records are opaque for the journal, so the Database is responsible for their encryption.
+ *
+ * A power cut can only leave the last record half written, such a tail is dropped when the journal is read.
+ */
+class DatabaseJournal {
+
+    // in bytes
+    private final static int INT_SIZE = 4;
+    private final static int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private final File journalFile;
+
+    /**
+     * Number of records appended since the journal was last read or cleared
+     */
+    @Getter
+    private int recordsCount;
+
+    DatabaseJournal(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    synchronized void append(byte[] record) throws IOException {
+        try (FileOutputStream fileOutputStream = new FileOutputStream(journalFile, true)) {
+            DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+            outputStream.writeInt(record.length);
+            outputStream.write(record);
+            outputStream.flush();
+            fileOutputStream.getFD().sync();
+        }
+        recordsCount++;
+    }
+
+    /**
+     * @return all completely written records in order they were appended
+     */
+    synchronized List<byte[]> readAll() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        if (!journalFile.exists()) {
+            recordsCount = 0;
+            return records;
+        }
+
+        long validLength = 0;
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            while (true) {
+                byte[] record = readRecord(inputStream);
+                if (record == null)
+                    break;
+
+                records.add(record);
+                validLength += INT_SIZE + record.length;
+            }
+        }
+
+        if (validLength < journalFile.length()) {
+            Logger.err("Dropping torn database journal tail of " + (journalFile.length() - validLength) + " bytes");
+            truncate(validLength);
+        }
+        recordsCount = records.size();
+        return records;
+    }
+
+    private byte[] readRecord(DataInputStream inputStream) throws IOException {
+        try {
+            int length = inputStream.readInt();
+            if (length < 0 || length > MAX_RECORD_SIZE)
+                return null;
+
+            byte[] record = new byte[length];
+            inputStream.readFully(record);
+            return record;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Removes all records, should be called once they are stored in the snapshot
+     */
+    synchronized void clear() throws IOException {
+        if (journalFile.exists())
+            truncate(0);
+        recordsCount = 0;
+    }
+
+    private void truncate(long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+            channel.force(true);
+        }
+    }
+}
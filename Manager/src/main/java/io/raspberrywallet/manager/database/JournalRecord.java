@@ -0,0 +1,37 @@
+package io.raspberrywallet.manager.database;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * Single change of the WalletEntity stored in the DatabaseJournal
+ */
+@Getter
+@AllArgsConstructor
+class JournalRecord implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Increasing number of the record, snapshot stores sequence of the last record it contains
+     */
+    private long sequence;
+
+    /**
+     * Key parts added by this change
+     */
+    private ArrayList<KeyPartEntity> addedParts;
+
+    /**
+     * Number of key parts required to recover the secret after this change
+     */
+    private int required;
+
+    /**
+     * Public parameters of the Shamir's scheme after this change
+     */
+    private byte[] shamirParameters;
+}
@@ -12,11 +12,37 @@ import java.util.Objects;
 
 @ToString
 public class WalletEntity implements Serializable {
-    
+
+    private static final long serialVersionUID = -5682654040133016666L;
+
     @Getter
     @Setter
     @JsonProperty("keyparts")
     private List<KeyPartEntity> parts = new ArrayList<>();
+
+    /**
+     * Number of key parts required to recover the secret, 0 when unknown (databases created before it was stored)
+     */
+    @Getter
+    @Setter
+    @JsonProperty("required")
+    private int required;
+
+    /**
+     * Public parameters of the Shamir's scheme common to all key parts, e.g. the prime, null when key parts contain them
+     */
+    @Getter
+    @Setter
+    @JsonProperty("shamirParameters")
+    private byte[] shamirParameters;
+
+    /**
+     * Sequence of the last journal record applied to this entity
+     */
+    @Getter
+    @Setter
+    @JsonProperty("journalSequence")
+    private long journalSequence;
     
     /**
      * Needed to override this, so `WalletEntity` can be easily compared.
@@ -1,6 +1,9 @@
 package io.raspberrywallet.manager.modules.authorizationserver;
 
 import io.raspberrywallet.manager.common.http.ApacheHttpClient;
+import io.raspberrywallet.manager.common.http.CircuitBreaker;
+import io.raspberrywallet.manager.common.http.HttpResult;
+import io.raspberrywallet.manager.common.http.RetryBudget;
 import io.raspberrywallet.manager.common.http.SecureApacheHttpClient;
 import io.raspberrywallet.manager.common.http.UnsecureApacheHttpClient;
 import io.raspberrywallet.manager.common.wrappers.Credentials;
@@ -8,21 +11,43 @@ import io.raspberrywallet.manager.common.wrappers.Secret;
 import io.raspberrywallet.manager.common.wrappers.Token;
 import org.apache.commons.lang.NotImplementedException;
 import org.apache.http.HttpHeaders;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.fluent.Form;
-import org.apache.http.util.EntityUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous client of the authorization server. Blocking requests run on a small pool of its own,
+ * failed ones are retried with jittered backoff while the RetryBudget of the operation allows,
+ * and every endpoint has a CircuitBreaker, so an unreachable server fails fast instead of holding callers.
+ */
+class AuthorizationServerAPI {
 
-import java.io.IOException;
+    private final static int DEFAULT_SESSION_LENGTH = 1800;
+    private final static int REQUEST_THREADS = 4;
 
-class AuthorizationServerAPI {
+    private final static ScheduledExecutorService executor = createExecutor();
 
     private AuthorizationServerConfig configuration;
 
     private ApacheHttpClient httpClient;
 
-    private Token token;
+    /**
+     * Sessions by wallet UUID, registration and secret state are not asked again while the token lives.
+     * A session is used only with the password it was logged in with.
+     */
+    private final Map<String, ServerSession> sessions = new ConcurrentHashMap<>();
+
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
 
     AuthorizationServerAPI(@NotNull AuthorizationServerConfig configuration) {
         this.configuration = configuration;
@@ -34,84 +59,88 @@ class AuthorizationServerAPI {
             httpClient = new UnsecureApacheHttpClient(defaultHeaders);
         else
             httpClient = new SecureApacheHttpClient(defaultHeaders, configuration.getAcceptUntrustedCerts());
+        httpClient.setTimeouts(configuration.getConnectTimeout(), configuration.getReadTimeout());
+    }
+
+    private static ScheduledExecutorService createExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newScheduledThreadPool(REQUEST_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "AuthorizationServer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return budget for all requests of a single encryption or decryption
+     */
+    RetryBudget newRetryBudget() {
+        return new RetryBudget(configuration.getMaxRetries(), configuration.getOperationTimeout(),
+                configuration.getRetryDelay(), configuration.getMaxRetryDelay());
     }
 
-    void login(Credentials credentials, int sessionLength) throws RequestException {
+    CompletableFuture<Void> login(Credentials credentials, int sessionLength, RetryBudget budget) {
         Form requestBody = Form.form()
                 .add(APIKeys.WALLETUUID.val, credentials.getName())
                 .add(APIKeys.PASSWORD.val, credentials.getPasswordBase64())
                 .add(APIKeys.SESSION_LENGTH.val, Integer.toString(sessionLength));
 
-        login(requestBody, sessionLength);
+        return call(requestBody, configuration.getLoginEndpoint(), budget, response -> {
+            handleResponse(response);
+            sessions.put(credentials.getName(), new ServerSession(new Token(response.getBody(), sessionLength), credentials));
+            return null;
+        });
     }
 
-    void login(Credentials credentials) throws RequestException {
-        login(credentials, 1800);
+    CompletableFuture<Void> login(Credentials credentials, RetryBudget budget) {
+        return login(credentials, DEFAULT_SESSION_LENGTH, budget);
     }
 
-    private void login(Form requestBody, int sessionLength) throws RequestException {
-        try {
-            HttpResponse httpResponse = executeRequest(requestBody, configuration.getLoginEndpoint());
-            int statusCode = httpResponse.getStatusLine().getStatusCode();
-            if (statusCode != HttpStatus.SC_OK)
-                throw new RequestException("Request failed with error code: " + statusCode);
-
-            String tokenString = EntityUtils.toString(httpResponse.getEntity());
-            token = new Token(tokenString, sessionLength);
-        } catch (IOException e) {
-            throw new RequestException(e);
-        }
-    }
+    CompletableFuture<Boolean> logout(Credentials credentials, RetryBudget budget) {
+        ServerSession session = sessions.remove(credentials.getName());
+        if (session == null)
+            return CompletableFuture.completedFuture(false);
 
-    boolean logout(Credentials credentials) throws RequestException {
         Form body = Form.form()
                 .add(APIKeys.WALLETUUID.val, credentials.getName())
-                .add(APIKeys.TOKEN.val, token.getData());
+                .add(APIKeys.TOKEN.val, session.getToken().getData());
 
-        HttpResponse response = executeRequest(body, configuration.getLogoutEndpoint());
-        return !handleResponse(response);
+        return call(body, configuration.getLogoutEndpoint(), budget, response -> !handleResponse(response));
     }
 
-    boolean register(Credentials credentials) throws RequestException {
+    CompletableFuture<Boolean> register(Credentials credentials, RetryBudget budget) {
         Form body = Form.form()
                 .add(APIKeys.WALLETUUID.val, credentials.getName())
                 .add(APIKeys.PASSWORD.val, credentials.getPasswordBase64());
 
-        HttpResponse response = executeRequest(body, configuration.getRegisterEndpoint());
-        return handleResponse(response);
+        return call(body, configuration.getRegisterEndpoint(), budget, this::handleResponse);
     }
 
-    boolean isRegistered(Credentials credentials) throws RequestException {
+    CompletableFuture<Boolean> isRegistered(Credentials credentials, RetryBudget budget) {
+        ServerSession session = getSession(credentials);
+        if (session != null && session.isRegistered())
+            return CompletableFuture.completedFuture(true);
+
         Form requestBody = Form.form()
                 .add(APIKeys.WALLETUUID.val, credentials.getName());
 
-        HttpResponse response = executeRequest(requestBody, configuration.getWalletExistsEndpoint());
-        int statusCode = response.getStatusLine().getStatusCode();
-        if (statusCode == HttpStatus.SC_OK) {
-            return true;
-        }
-        if (statusCode == HttpStatus.SC_NOT_FOUND) {
-            return false;
-        } else
-            throw new RequestException("Request failed with error code: " + statusCode);
+        return call(requestBody, configuration.getWalletExistsEndpoint(), budget, this::handleExistsResponse);
     }
 
     /**
-     *
      * @return Base64 encoded secret
-     * @throws RequestException
      */
-    String getSecret(Credentials credentials) throws RequestException {
-        Form requestBody = Form.form()
-                .add(APIKeys.WALLETUUID.val, credentials.getName())
-                .add(APIKeys.TOKEN.val, token.getData());
-
-        try {
-            HttpResponse httpResponse = executeRequest(requestBody, configuration.getGetSecretEndpoint());
-            return EntityUtils.toString(httpResponse.getEntity());
-        } catch (IOException e) {
-            throw new RequestException(e);
-        }
+    CompletableFuture<String> getSecret(Credentials credentials, RetryBudget budget) {
+        return withSession(credentials, session -> {
+            Form requestBody = Form.form()
+                    .add(APIKeys.WALLETUUID.val, credentials.getName())
+                    .add(APIKeys.TOKEN.val, session.getToken().getData());
+
+            return call(requestBody, configuration.getGetSecretEndpoint(), budget, response -> {
+                handleResponse(response);
+                return response.getBody();
+            });
+        });
     }
 
     /**
@@ -123,50 +152,156 @@ class AuthorizationServerAPI {
         throw new NotImplementedException();
     }
 
-    void overwriteSecret(Credentials credentials, String secret) throws RequestException {
-        Form requestBody = Form.form()
-                .add(APIKeys.WALLETUUID.val, credentials.getName())
-                .add(APIKeys.TOKEN.val, token.getData())
-                .add(APIKeys.SECRET.val, secret);
+    CompletableFuture<Void> overwriteSecret(Credentials credentials, String secret, RetryBudget budget) {
+        return withSession(credentials, session -> {
+            Form requestBody = Form.form()
+                    .add(APIKeys.WALLETUUID.val, credentials.getName())
+                    .add(APIKeys.TOKEN.val, session.getToken().getData())
+                    .add(APIKeys.SECRET.val, secret);
+
+            return call(requestBody, configuration.getOverwriteEndpoint(), budget, response -> {
+                handleResponse(response);
+                session.setSecretSet(true);
+                return null;
+            });
+        });
+    }
 
-        HttpResponse response = executeRequest(requestBody, configuration.getOverwriteEndpoint());
-        handleResponse(response);
+    CompletableFuture<Boolean> secretIsSet(Credentials credentials, RetryBudget budget) {
+        return withSession(credentials, session -> {
+            if (session.isSecretSet())
+                return CompletableFuture.completedFuture(true);
+
+            Form requestBody = Form.form()
+                    .add(APIKeys.WALLETUUID.val, credentials.getName())
+                    .add(APIKeys.TOKEN.val, session.getToken().getData());
+
+            return call(requestBody, configuration.getIsSecretSetEndpoint(), budget, response -> {
+                boolean secretSet = handleExistsResponse(response);
+                session.setSecretSet(secretSet);
+                return secretSet;
+            });
+        });
     }
 
-    boolean secretIsSet(Credentials credentials) throws RequestException {
-        Form requestBody = Form.form()
-                .add(APIKeys.WALLETUUID.val, credentials.getName())
-                .add(APIKeys.TOKEN.val, token.getData());
+    boolean isLoggedIn(Credentials credentials) {
+        return getSession(credentials) != null;
+    }
+
+    /**
+     * Forgets cached state of the wallet, so it is asked from the server again
+     */
+    void invalidateSession(Credentials credentials) {
+        invalidateSession(credentials.getName());
+    }
 
-        HttpResponse response = executeRequest(requestBody, configuration.getIsSecretSetEndpoint());
+    void invalidateSession(String walletUUID) {
+        sessions.remove(walletUUID);
+    }
 
-        int statusCode = response.getStatusLine().getStatusCode();
-        if (statusCode == HttpStatus.SC_OK)
-            return true;
-        if (statusCode == HttpStatus.SC_NOT_FOUND)
-            return false;
-        else
-            throw new RequestException("Request failed with error code: " + statusCode);
+    @Nullable
+    CircuitBreaker.State getCircuitState(String endpoint) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+        return circuitBreaker == null ? null : circuitBreaker.getState();
+    }
+
+    @Nullable
+    private ServerSession getSession(Credentials credentials) {
+        ServerSession session = sessions.get(credentials.getName());
+        if (session == null)
+            return null;
+        if (!session.isValid()) {
+            sessions.remove(credentials.getName(), session);
+            return null;
+        }
+        // other password has to log in by itself, so the server checks it
+        return session.belongsTo(credentials) ? session : null;
+    }
+
+    private <T> CompletableFuture<T> withSession(Credentials credentials, SessionCall<T> sessionCall) {
+        ServerSession session = getSession(credentials);
+        if (session == null)
+            return failed(new RequestException("Not logged in"));
+        return sessionCall.call(session);
+    }
+
+    private <T> CompletableFuture<T> call(Form body, String endpoint, RetryBudget budget, ResponseHandler<T> handler) {
+        CompletableFuture<HttpResult> response = new CompletableFuture<>();
+        CircuitBreaker circuitBreaker = circuitBreakers.computeIfAbsent(endpoint, name -> new CircuitBreaker(name,
+                configuration.getCircuitBreakerThreshold(), configuration.getCircuitBreakerCooldown()));
+        executor.execute(() -> attempt(body, endpoint, circuitBreaker, budget, 1, response));
+
+        return response.thenApply(result -> {
+            try {
+                return handler.handle(result);
+            } catch (RequestException e) {
+                throw new CompletionException(e);
+            }
+        });
     }
 
-    private HttpResponse executeRequest(Form body, String endpoint) throws RequestException {
+    private void attempt(Form body, String endpoint, CircuitBreaker circuitBreaker, RetryBudget budget,
+                         int attempt, CompletableFuture<HttpResult> response) {
+        if (!circuitBreaker.tryAcquire()) {
+            response.completeExceptionally(new RequestException("Circuit of " + endpoint + " is open"));
+            return;
+        }
+
+        RequestException failure;
+        budget.onAttempt();
         try {
-            return httpClient.sendPOSTRequest(body, endpoint);
-        } catch (IOException e) {
-            throw new RequestException(e);
+            HttpResult result = httpClient.sendPOSTRequest(body, endpoint);
+            if (result.getStatusCode() < HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+                circuitBreaker.onSuccess();
+                response.complete(result);
+                return;
+            }
+            failure = new RequestException("Request failed with error code: " + result.getStatusCode());
+        } catch (Exception e) {
+            failure = new RequestException(e);
         }
+
+        circuitBreaker.onFailure();
+        long delay = budget.nextRetryDelay(attempt);
+        if (delay < 0)
+            response.completeExceptionally(failure);
+        else
+            executor.schedule(() -> attempt(body, endpoint, circuitBreaker, budget, attempt + 1, response),
+                    delay, TimeUnit.MILLISECONDS);
     }
 
-    private boolean handleResponse(HttpResponse response) throws RequestException {
-        int statusCode = response.getStatusLine().getStatusCode();
+    private boolean handleResponse(HttpResult response) throws RequestException {
+        int statusCode = response.getStatusCode();
         if (statusCode != HttpStatus.SC_OK)
             throw new RequestException("Request failed with error code: " + statusCode);
 
         return true;
     }
 
-    boolean isLoggedIn() {
-        return token != null && !token.isExpired();
+    private boolean handleExistsResponse(HttpResult response) throws RequestException {
+        int statusCode = response.getStatusCode();
+        if (statusCode == HttpStatus.SC_OK)
+            return true;
+        if (statusCode == HttpStatus.SC_NOT_FOUND)
+            return false;
+        else
+            throw new RequestException("Request failed with error code: " + statusCode);
+    }
+
+    static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(HttpResult response) throws RequestException;
+    }
+
+    @FunctionalInterface
+    private interface SessionCall<T> {
+        CompletableFuture<T> call(ServerSession session);
     }
 
 }
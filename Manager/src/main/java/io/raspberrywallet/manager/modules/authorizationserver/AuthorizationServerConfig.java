@@ -22,6 +22,39 @@ public class AuthorizationServerConfig implements ModuleConfig {
      */
     @JsonProperty("accept-untrusted-certs")
     private boolean acceptUntrustedCerts = true;
+
+    @JsonProperty("connect-timeout")
+    private int connectTimeout = 3000;
+
+    @JsonProperty("read-timeout")
+    private int readTimeout = 5000;
+
+    /**
+     * Time limit in milliseconds of all requests needed for a single encryption or decryption, retries included
+     */
+    @JsonProperty("operation-timeout")
+    private int operationTimeout = 15000;
+
+    /**
+     * Retries of failed requests allowed during a single encryption or decryption
+     */
+    @JsonProperty("max-retries")
+    private int maxRetries = 3;
+
+    @JsonProperty("retry-delay")
+    private int retryDelay = 200;
+
+    @JsonProperty("max-retry-delay")
+    private int maxRetryDelay = 2000;
+
+    /**
+     * Consecutive failures of an endpoint after which it is not called until the cooldown passes
+     */
+    @JsonProperty("circuit-breaker-threshold")
+    private int circuitBreakerThreshold = 5;
+
+    @JsonProperty("circuit-breaker-cooldown")
+    private int circuitBreakerCooldown = 30000;
     
     boolean getAcceptUntrustedCerts() {
         return acceptUntrustedCerts;
@@ -1,9 +1,11 @@
 package io.raspberrywallet.manager.modules.authorizationserver;
 
+import com.stasbar.Logger;
 import io.raspberrywallet.contract.InternalModuleException;
 import io.raspberrywallet.contract.RequiredInputNotFound;
 import io.raspberrywallet.manager.Configuration;
 import io.raspberrywallet.manager.common.generators.RandomStringGenerator;
+import io.raspberrywallet.manager.common.http.RetryBudget;
 import io.raspberrywallet.manager.common.readers.WalletUUIDReader;
 import io.raspberrywallet.manager.common.wrappers.ByteWrapper;
 import io.raspberrywallet.manager.common.wrappers.Credentials;
@@ -18,6 +20,12 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Base64;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 public class AuthorizationServerModule extends Module<AuthorizationServerConfig> {
     public static final String PASSWORD = "password";
@@ -42,24 +50,72 @@ public class AuthorizationServerModule extends Module<AuthorizationServerConfig>
             throw new RequiredInputNotFound(AuthorizationServerModule.class.getName(), PASSWORD);
     }
 
-    private void callServer(Credentials serverCredentials) throws InternalModuleException {
+    /**
+     * Fetches the secret, in one round trip while a session of the wallet is cached.
+     * Waits no longer than the operation timeout, requests left behind are bounded by the read timeout.
+     */
+    private String fetchSecret(Credentials serverCredentials) throws InternalModuleException {
+        RetryBudget budget = serverAPI.newRetryBudget();
+        long start = System.nanoTime();
         try {
-            if (!serverAPI.isRegistered(serverCredentials))
-                serverAPI.register(serverCredentials);
-
-            if (!serverAPI.isLoggedIn())
-                serverAPI.login(serverCredentials);
-
-            if (!serverAPI.secretIsSet(serverCredentials)) {
-                String randomSecret = RandomStringGenerator.get(PASSWORD_SIZE_IN_BYTES);
-                serverAPI.overwriteSecret(serverCredentials, randomSecret);
-            }
-        } catch (RequestException e) {
+            String secret = fetchSecretAsync(serverCredentials, budget)
+                    .get(budget.getRemainingMillis(), TimeUnit.MILLISECONDS);
+            Logger.d(String.format("Secret fetched in %d ms, %d requests",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), budget.getAttempts()));
+            return secret;
+        } catch (TimeoutException e) {
+            serverAPI.invalidateSession(serverCredentials);
+            throw new InternalModuleException("Authorization server did not answer in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (ExecutionException e) {
+            serverAPI.invalidateSession(serverCredentials);
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
             throw new InternalModuleException(
-                    "Request exception in module " + AuthorizationServerConfig.class.getName() + ":" + e.getMessage());
+                    "Request exception in module " + AuthorizationServerConfig.class.getName() + ":" + cause.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalModuleException("Interrupted while waiting for authorization server");
         }
     }
 
+    private CompletableFuture<String> fetchSecretAsync(Credentials serverCredentials, RetryBudget budget) {
+        if (!serverAPI.isLoggedIn(serverCredentials))
+            return callServer(serverCredentials, budget)
+                    .thenCompose(ignored -> serverAPI.getSecret(serverCredentials, budget));
+
+        // cached session could have been dropped by the server, start over once
+        return serverAPI.getSecret(serverCredentials, budget)
+                .handle((secret, e) -> {
+                    if (e == null)
+                        return CompletableFuture.completedFuture(secret);
+                    serverAPI.invalidateSession(serverCredentials);
+                    return callServer(serverCredentials, budget)
+                            .thenCompose(ignored -> serverAPI.getSecret(serverCredentials, budget));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> callServer(Credentials serverCredentials, RetryBudget budget) {
+        // registered wallet is the usual case, so it is not asked for before logging in
+        return serverAPI.login(serverCredentials, budget)
+                .handle((ignored, loginError) -> {
+                    if (loginError == null)
+                        return CompletableFuture.<Void>completedFuture(null);
+                    return serverAPI.isRegistered(serverCredentials, budget).thenCompose(registered -> {
+                        if (registered)
+                            return AuthorizationServerAPI.<Void>failed(loginError);
+                        return serverAPI.register(serverCredentials, budget)
+                                .thenCompose(done -> serverAPI.login(serverCredentials, budget));
+                    });
+                })
+                .thenCompose(Function.identity())
+                .thenCompose(ignored -> serverAPI.secretIsSet(serverCredentials, budget))
+                .thenCompose(secretSet -> secretSet
+                        ? CompletableFuture.completedFuture(null)
+                        : serverAPI.overwriteSecret(serverCredentials,
+                        RandomStringGenerator.get(PASSWORD_SIZE_IN_BYTES), budget));
+    }
+
     @NotNull
     private Credentials createCredentials(String password) {
         return new Credentials(walletUUID.toString(),
@@ -68,36 +124,33 @@ public class AuthorizationServerModule extends Module<AuthorizationServerConfig>
 
     @Override
     protected byte[] encrypt(byte[] payload) throws EncryptionException, InternalModuleException {
-        try {
-            Credentials serverCredentials = createCredentials(getInput(PASSWORD));
-            callServer(serverCredentials);
-            String password = serverAPI.getSecret(serverCredentials);
+        Credentials serverCredentials = createCredentials(getInput(PASSWORD));
+        String password = fetchSecret(serverCredentials);
 
-            AESEncryptedObject<ByteWrapper> encryptedSecret =
-                    CryptoObject.encrypt(new ByteWrapper(payload), password);
+        AESEncryptedObject<ByteWrapper> encryptedSecret =
+                CryptoObject.encrypt(new ByteWrapper(payload), password);
 
-            return SerializationUtils.serialize(encryptedSecret);
-
-        } catch (RequestException e) {
-            throw new EncryptionException(e.getMessage());
-        }
+        return SerializationUtils.serialize(encryptedSecret);
     }
 
     @Override
     protected byte[] decrypt(byte[] keyPart) throws DecryptionException, InternalModuleException {
-        try {
-            Credentials serverCredentials = createCredentials(getInput(PASSWORD));
-            callServer(serverCredentials);
-            String password = serverAPI.getSecret(serverCredentials);
+        Credentials serverCredentials = createCredentials(getInput(PASSWORD));
+        String password = fetchSecret(serverCredentials);
 
-            AESEncryptedObject<ByteWrapper> deserializedKeyPart =
-                    (AESEncryptedObject<ByteWrapper>) SerializationUtils.deserialize(keyPart);
+        AESEncryptedObject<ByteWrapper> deserializedKeyPart =
+                (AESEncryptedObject<ByteWrapper>) SerializationUtils.deserialize(keyPart);
 
-            return CryptoObject.decrypt(deserializedKeyPart, password).getData();
+        return CryptoObject.decrypt(deserializedKeyPart, password).getData();
+    }
 
-        } catch (RequestException e) {
-            throw new InternalModuleException(e.getMessage());
-        }
+    /**
+     * Wallet is locked, so next decryption has to log in with the password typed then
+     */
+    @Override
+    public void clearInputs() {
+        serverAPI.invalidateSession(walletUUID.toString());
+        super.clearInputs();
     }
 
     @NotNull
@@ -1,15 +1,13 @@
 package io.raspberrywallet.manager.modules.authorizationserver;
 
-import java.io.IOException;
-
 class RequestException extends Exception {
     
     RequestException(String msg) {
         super(msg);
     }
     
-    RequestException(IOException e) {
+    RequestException(Throwable e) {
         super(e);
     }
 
-}
\ No newline at end of file
+}
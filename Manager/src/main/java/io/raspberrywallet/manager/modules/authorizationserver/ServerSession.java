@@ -0,0 +1,61 @@
+package io.raspberrywallet.manager.modules.authorizationserver;
+
+import io.raspberrywallet.manager.common.wrappers.Credentials;
+import io.raspberrywallet.manager.common.wrappers.Token;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * What is known about a wallet on the authorization server, trusted only while its token lives
+ * and only for the password it was logged in with
+ */
+@Getter
+@Setter
+class ServerSession {
+
+    private final Token token;
+
+    /**
+     * Digest of the password used to log in, the password itself is not kept
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final byte[] passwordDigest;
+
+    /**
+     * Logging in proves the wallet is registered
+     */
+    private boolean registered = true;
+
+    private boolean secretSet;
+
+    ServerSession(Token token, Credentials credentials) {
+        this.token = token;
+        this.passwordDigest = digest(credentials);
+    }
+
+    boolean isValid() {
+        return !token.isExpired();
+    }
+
+    /**
+     * @return true if credentials carry the password this session was logged in with
+     */
+    boolean belongsTo(Credentials credentials) {
+        return MessageDigest.isEqual(passwordDigest, digest(credentials));
+    }
+
+    private static byte[] digest(Credentials credentials) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(credentials.getPassword().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
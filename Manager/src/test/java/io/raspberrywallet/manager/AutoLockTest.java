@@ -0,0 +1,134 @@
+package io.raspberrywallet.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Time is driven by hand and checks are run directly, the scheduler only records what would be scheduled
+ */
+class AutoLockTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger locks = new AtomicInteger();
+    private AutoLock autoLock;
+
+    @BeforeEach
+    void setUp() {
+        autoLock = new AutoLock(TIMEOUT, Duration.ZERO, scheduler, locks::incrementAndGet, clock::get);
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void WhenNotArmed_TapsDoNotTriggerLock() {
+        autoLock.tap();
+        advance(TIMEOUT.multipliedBy(2));
+        autoLock.check();
+
+        assertEquals(0, locks.get());
+        assertEquals(0, autoLock.getRemainingSeconds());
+    }
+
+    @Test
+    void WhenNotTapped_LockIsTriggeredOnce() {
+        autoLock.arm();
+        assertEquals(TIMEOUT.getSeconds(), autoLock.getRemainingSeconds());
+
+        advance(TIMEOUT.minusNanos(1));
+        autoLock.check();
+        assertEquals(0, locks.get());
+        assertEquals(1, autoLock.getRemainingSeconds());
+
+        advance(Duration.ofNanos(1));
+        autoLock.check();
+        autoLock.check();
+        assertEquals(1, locks.get());
+        assertEquals(0, autoLock.getRemainingSeconds());
+    }
+
+    @Test
+    void WhenTapped_LockIsDelayed() {
+        autoLock.arm();
+        advance(TIMEOUT.dividedBy(2));
+        autoLock.tap();
+
+        advance(TIMEOUT.dividedBy(2));
+        autoLock.check();
+        assertEquals(0, locks.get());
+        // next check is due when the tapped deadline passes
+        verify(scheduler).schedule(any(Runnable.class), eq(TIMEOUT.dividedBy(2).toNanos()), eq(TimeUnit.NANOSECONDS));
+
+        advance(TIMEOUT.dividedBy(2));
+        autoLock.check();
+        assertEquals(1, locks.get());
+    }
+
+    @Test
+    void WhenTappedAfterLock_LockIsNotTriggeredUntilArmedAgain() {
+        autoLock.arm();
+        advance(TIMEOUT);
+        autoLock.check();
+        assertEquals(1, locks.get());
+
+        autoLock.tap();
+        advance(TIMEOUT);
+        autoLock.check();
+        assertEquals(1, locks.get());
+
+        autoLock.arm();
+        advance(TIMEOUT);
+        autoLock.check();
+        assertEquals(2, locks.get());
+    }
+
+    @Test
+    void WhenDisarmed_LockIsNotTriggered() {
+        autoLock.arm();
+        autoLock.disarm();
+        advance(TIMEOUT);
+        autoLock.check();
+
+        assertEquals(0, locks.get());
+    }
+
+    @Test
+    void WhenCountdownIsEnabled_RemainingSecondsArePublished() {
+        List<Integer> remaining = new ArrayList<>();
+        autoLock.setAutoLockChannelListener(remaining::add);
+        autoLock.publishRemaining();
+        assertTrue(remaining.isEmpty());
+
+        autoLock.arm();
+        autoLock.publishRemaining();
+        advance(TIMEOUT.minusSeconds(1));
+        autoLock.publishRemaining();
+        advance(Duration.ofSeconds(1));
+        autoLock.check();
+        autoLock.publishRemaining();
+
+        assertEquals(1, locks.get());
+        assertEquals(3, remaining.size());
+        assertEquals(TIMEOUT.getSeconds(), (long) remaining.get(0));
+        assertEquals(1, (int) remaining.get(1));
+        assertEquals(0, (int) remaining.get(2));
+    }
+}
@@ -0,0 +1,87 @@
+package io.raspberrywallet.manager;
+
+import io.raspberrywallet.contract.BalanceView;
+import io.raspberrywallet.contract.ManagerNotReady;
+import io.raspberrywallet.manager.linux.TemperatureMonitor;
+import io.raspberrywallet.manager.linux.WPAConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DeferredManagerTest {
+
+    private DeferredManager deferredManager;
+    private Manager manager;
+    private TemperatureMonitor tempMonitor;
+    private WPAConfiguration wpaConfiguration;
+
+    @BeforeEach
+    void setUp() {
+        tempMonitor = mock(TemperatureMonitor.class);
+        wpaConfiguration = mock(WPAConfiguration.class);
+        deferredManager = new DeferredManager(tempMonitor, wpaConfiguration);
+        manager = mock(Manager.class);
+    }
+
+    @Test
+    void BeforeReady_WalletCallsThrowManagerNotReady() {
+        assertFalse(deferredManager.isReady());
+        assertThrows(ManagerNotReady.class, () -> deferredManager.getWalletStatus());
+        assertThrows(ManagerNotReady.class, () -> deferredManager.getEstimatedBalance());
+    }
+
+    @Test
+    void BeforeReady_LivenessCallsAnswer() {
+        assertEquals("pong", deferredManager.ping());
+        assertEquals(0, deferredManager.getAutoLockRemainingSeconds());
+        assertNull(deferredManager.getSyncProgress());
+        deferredManager.tap();
+    }
+
+    @Test
+    void BeforeReady_SystemCallsAreAnswered() {
+        when(tempMonitor.call()).thenReturn("45.000");
+        when(wpaConfiguration.getAsMap()).thenReturn(Collections.singletonMap("ssid", "home"));
+
+        assertEquals("45.000", deferredManager.getCpuTemperature());
+        assertEquals("home", deferredManager.getWifiConfig().get("ssid"));
+    }
+
+    @Test
+    void WhenReady_CallsAreDelegated() throws Exception {
+        when(manager.getEstimatedBalance()).thenReturn("1.5");
+        deferredManager.complete(manager);
+
+        assertTrue(deferredManager.isReady());
+        assertEquals("1.5", deferredManager.getEstimatedBalance());
+        deferredManager.tap();
+        verify(manager).tap();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ListenersAddedBeforeReady_AreRegisteredOnceReady() {
+        Consumer<BalanceView> listener = mock(Consumer.class);
+        deferredManager.addBalanceListener(listener);
+        verifyZeroInteractions(manager);
+
+        deferredManager.complete(manager);
+
+        verify(manager).addBalanceListener(listener);
+    }
+
+    @Test
+    void WhenStartupFailed_CallsReportTheCause() {
+        deferredManager.fail(new IOException("block store locked"));
+
+        assertFalse(deferredManager.isReady());
+        ManagerNotReady e = assertThrows(ManagerNotReady.class, () -> deferredManager.getWalletStatus());
+        assertTrue(e.getMessage().contains("block store locked"));
+    }
+}
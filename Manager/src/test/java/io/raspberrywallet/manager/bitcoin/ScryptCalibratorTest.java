@@ -0,0 +1,55 @@
+package io.raspberrywallet.manager.bitcoin;
+
+import io.raspberrywallet.manager.Configuration;
+import org.bitcoinj.wallet.Protos;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScryptCalibratorTest {
+
+    @Test
+    void WhenCalibrating_ParametersRespectFloorAndMemoryCeiling() {
+        Configuration.ScryptConfig calibrated = ScryptCalibrator.calibrate(200, 16);
+
+        assertTrue(calibrated.isCalibrated());
+        assertEquals(0, calibrated.getN() & (calibrated.getN() - 1), "N has to be a power of two");
+        assertTrue(calibrated.getN() >= 1 << 14);
+        assertTrue(128L * calibrated.getR() * calibrated.getN() <= 16L << 20);
+    }
+
+    @Test
+    void WhenCalibrationIsStored_ItIsReusedOnNextStart() throws IOException {
+        File basePath = Files.createTempDirectory("scrypt").toFile();
+        Configuration configuration = new Configuration(basePath.getAbsolutePath());
+        configuration.getScryptConfig().setTargetMillis(100);
+        configuration.getScryptConfig().setMaxMemoryMb(16);
+
+        Protos.ScryptParameters first = ScryptCalibrator.resolve(configuration);
+        assertTrue(new File(basePath, "scrypt.yaml").exists());
+
+        Configuration restarted = new Configuration(basePath.getAbsolutePath());
+        restarted.getScryptConfig().setTargetMillis(100);
+        restarted.getScryptConfig().setMaxMemoryMb(16);
+        assertEquals(first, ScryptCalibrator.resolve(restarted));
+        assertEquals(first.getN(), restarted.getScryptConfig().getN());
+    }
+
+    @Test
+    void WhenParametersAreConfigured_CalibrationIsSkipped() throws IOException {
+        File basePath = Files.createTempDirectory("scrypt").toFile();
+        Configuration configuration = new Configuration(basePath.getAbsolutePath());
+        configuration.getScryptConfig().setN(1 << 15);
+        configuration.getScryptConfig().setR(8);
+        configuration.getScryptConfig().setP(2);
+
+        Protos.ScryptParameters parameters = ScryptCalibrator.resolve(configuration);
+        assertEquals(1 << 15, parameters.getN());
+        assertEquals(2, parameters.getP());
+        assertFalse(new File(basePath, "scrypt.yaml").exists());
+    }
+}
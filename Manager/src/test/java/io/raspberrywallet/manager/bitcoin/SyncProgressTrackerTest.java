@@ -0,0 +1,91 @@
+package io.raspberrywallet.manager.bitcoin;
+
+import io.raspberrywallet.contract.SyncProgress;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.params.TestNet3Params;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class SyncProgressTrackerTest {
+
+    private final Block block = TestNet3Params.get().getGenesisBlock();
+    private final Peer peer = mock(Peer.class);
+    private final List<SyncProgress> samples = new ArrayList<>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private SyncProgressTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new SyncProgressTracker(TimeUnit.HOURS.toMillis(1), () -> 3, samples::add, done::countDown);
+    }
+
+    @Test
+    void WhenBlocksAreDownloaded_OnlySamplesArePublished() {
+        tracker.onChainDownloadStarted(peer, 1000);
+        for (int left = 999; left >= 900; left--)
+            tracker.onBlocksDownloaded(peer, block, null, left);
+        assertTrue(samples.isEmpty());
+
+        tracker.sample(0);
+        tracker.onBlocksDownloaded(peer, block, null, 800);
+        tracker.sample(1000);
+
+        assertEquals(2, samples.size());
+        SyncProgress progress = samples.get(1);
+        assertEquals(20.0, progress.getPercentage(), 1e-9);
+        assertEquals(800, progress.getBlocksLeft());
+        assertTrue(progress.getBlocksPerSecond() > 0);
+        assertEquals(Math.round(800 / progress.getBlocksPerSecond()), progress.getEtaSeconds());
+        assertEquals(3, progress.getPeerCount());
+        assertSame(progress, tracker.getLastProgress());
+    }
+
+    @Test
+    void WhenDownloadIsDone_FinalSampleIsPublished() throws InterruptedException {
+        tracker.onChainDownloadStarted(peer, 10);
+        tracker.onBlocksDownloaded(peer, block, null, 0);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (tracker.getLastProgress() == null && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        SyncProgress progress = tracker.getLastProgress();
+        assertNotNull(progress);
+        assertEquals(100.0, progress.getPercentage(), 1e-9);
+        assertEquals(0, progress.getEtaSeconds());
+    }
+
+    @Test
+    void WhenNoBlocksWereDownloaded_SampleIsNotPublished() {
+        tracker.onChainDownloadStarted(peer, 1000);
+        tracker.onBlocksDownloaded(peer, block, null, 900);
+        tracker.sample(0);
+        tracker.sample(1000);
+
+        assertEquals(1, samples.size());
+        assertEquals(900, tracker.getLastProgress().getBlocksLeft());
+    }
+
+    @Test
+    void WhenStopped_NothingIsPublished() throws InterruptedException {
+        tracker.onChainDownloadStarted(peer, 1000);
+        tracker.stop();
+        assertTrue(tracker.isStopped());
+
+        tracker.onBlocksDownloaded(peer, block, null, 500);
+        tracker.onBlocksDownloaded(peer, block, null, 0);
+        Thread.sleep(50);
+
+        assertTrue(samples.isEmpty());
+        assertEquals(0, done.getCount());
+    }
+}
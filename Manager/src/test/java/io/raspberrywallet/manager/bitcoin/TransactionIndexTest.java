@@ -0,0 +1,208 @@
+package io.raspberrywallet.manager.bitcoin;
+
+import io.raspberrywallet.contract.TransactionDirection;
+import io.raspberrywallet.contract.TransactionPage;
+import io.raspberrywallet.contract.TransactionView;
+import org.bitcoinj.core.*;
+import org.bitcoinj.params.TestNet3Params;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionIndexTest {
+
+    private static final int RECEIVED = 10;
+
+    private final NetworkParameters params = TestNet3Params.get();
+    private Wallet wallet;
+    private TransactionIndex index;
+    private Address otherAddress;
+    private Transaction spending;
+
+    @BeforeEach
+    void setUp() {
+        // the wallet sets update time of received transactions, a second apart they are ordered by time
+        Utils.setMockClock();
+        wallet = new Wallet(params);
+        index = new TransactionIndex(params);
+        index.attach(wallet);
+        otherAddress = new ECKey().toAddress(params);
+
+        Transaction first = null;
+        for (int i = 0; i < RECEIVED; i++) {
+            Transaction tx = new Transaction(params);
+            tx.addInput(new TransactionInput(params, tx, new byte[0],
+                    new TransactionOutPoint(params, 0, Sha256Hash.of(new byte[]{(byte) i}))));
+            tx.addOutput(Coin.valueOf(100_000 + i), wallet.freshReceiveAddress());
+            receive(tx);
+            if (first == null)
+                first = tx;
+        }
+
+        spending = new Transaction(params);
+        spending.addInput(first.getOutput(0));
+        spending.addOutput(Coin.valueOf(50_000), otherAddress);
+        receive(spending);
+        Threading.waitForUserCode();
+    }
+
+    @AfterEach
+    void tearDown() {
+        Utils.mockTime = null;
+    }
+
+    private void receive(Transaction tx) {
+        Utils.rollMockClock(1);
+        wallet.receivePending(tx, null);
+    }
+
+    @Test
+    void WhenPaging_AllTransactionsAreReturnedOnceFromTheNewest() {
+        assertEquals(RECEIVED + 1, index.size());
+
+        List<TransactionView> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            TransactionPage page = index.getPage(cursor, 3, null, null);
+            assertTrue(page.getTransactions().size() <= 3);
+            all.addAll(page.getTransactions());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(RECEIVED + 1, all.size());
+        assertEquals(spending.getHashAsString(), all.get(0).getTxHash());
+        for (int i = 1; i < all.size(); i++)
+            assertTrue(all.get(i - 1).getCreationTimestamp() > all.get(i).getCreationTimestamp());
+        assertEquals(index.getAll().size(), all.size());
+    }
+
+    @Test
+    void WhenFiltering_OnlyMatchingTransactionsAreReturned() {
+        TransactionPage outgoing = index.getPage(null, 100, null, TransactionDirection.OUTGOING);
+        assertEquals(1, outgoing.getTransactions().size());
+        assertEquals(spending.getHashAsString(), outgoing.getTransactions().get(0).getTxHash());
+
+        assertEquals(RECEIVED, index.getPage(null, 100, null, TransactionDirection.INCOMING).getTransactions().size());
+
+        TransactionPage byAddress = index.getPage(null, 100, otherAddress.toBase58(), null);
+        assertEquals(1, byAddress.getTransactions().size());
+        assertNull(byAddress.getNextCursor());
+
+        assertTrue(index.getPage(null, 100, otherAddress.toBase58(), TransactionDirection.INCOMING)
+                .getTransactions().isEmpty());
+        assertTrue(index.getPage(null, 100, "unknown", null).getTransactions().isEmpty());
+    }
+
+    @Test
+    void WhenAddressIsNotKnown_PlaceholdersAreNotIndexed() {
+        // inputs of received transactions have no scriptSig, so their addresses are unknown
+        assertTrue(index.getAll().stream().allMatch(view -> view.getInputAddresses().contains("N/A or SegWit")));
+
+        assertTrue(index.getPage(null, 100, "N/A or SegWit", null).getTransactions().isEmpty());
+        assertTrue(index.getPage(null, 100, "N/A", null).getTransactions().isEmpty());
+    }
+
+    @Test
+    void WhenRemainingTransactionsAreFilteredOut_NextCursorIsNull() {
+        // the newest transaction paying to otherAddress, the older one is outgoing
+        Transaction incoming = new Transaction(params);
+        incoming.addInput(new TransactionInput(params, incoming, new byte[0],
+                new TransactionOutPoint(params, 0, Sha256Hash.of(new byte[]{(byte) RECEIVED}))));
+        incoming.addOutput(Coin.valueOf(200_000), wallet.freshReceiveAddress());
+        incoming.addOutput(Coin.valueOf(10_000), otherAddress);
+        receive(incoming);
+        Threading.waitForUserCode();
+
+        TransactionPage both = index.getPage(null, 1, otherAddress.toBase58(), null);
+        assertEquals(incoming.getHashAsString(), both.getTransactions().get(0).getTxHash());
+        assertNotNull(both.getNextCursor());
+
+        TransactionPage filtered = index.getPage(null, 1, otherAddress.toBase58(), TransactionDirection.INCOMING);
+        assertEquals(incoming.getHashAsString(), filtered.getTransactions().get(0).getTxHash());
+        assertNull(filtered.getNextCursor());
+    }
+
+    @Test
+    void WhenCursorIsMalformed_IllegalArgumentExceptionIsThrown() {
+        assertThrows(IllegalArgumentException.class, () -> index.getPage("cursor", 10, null, null));
+        assertThrows(IllegalArgumentException.class, () -> index.getPage("x:y", 10, null, null));
+        assertThrows(IllegalArgumentException.class, () -> index.getPage(null, 0, null, null));
+    }
+
+    @Test
+    void WhenDepthChanges_MemoizedViewIsPatched() {
+        TransactionView view = viewOf(spending);
+        assertSame(view, viewOf(spending));
+        assertEquals(0, view.getConfirmations());
+
+        spending.getConfidence().setDepthInBlocks(3);
+        spending.getConfidence().queueListeners(TransactionConfidence.Listener.ChangeReason.DEPTH);
+        Threading.waitForUserCode();
+
+        TransactionView patched = viewOf(spending);
+        assertEquals(3, patched.getConfirmations());
+        assertSame(view.getOutputAddresses(), patched.getOutputAddresses());
+        assertEquals(view.getAmountFromMe(), patched.getAmountFromMe());
+    }
+
+    @Test
+    void WhenTransactionDies_ItIsRemoved() {
+        spending.getConfidence().setConfidenceType(TransactionConfidence.ConfidenceType.DEAD);
+        spending.getConfidence().queueListeners(TransactionConfidence.Listener.ChangeReason.TYPE);
+        Threading.waitForUserCode();
+
+        assertEquals(RECEIVED, index.size());
+        assertTrue(index.getPage(null, 100, null, TransactionDirection.OUTGOING).getTransactions().isEmpty());
+    }
+
+    @Test
+    void WhenTransactionIsAddedOrConfirmed_ListenerIsNotified() {
+        List<TransactionView> updates = new ArrayList<>();
+        index.setUpdateListener(updates::add);
+
+        Transaction tx = new Transaction(params);
+        tx.addInput(new TransactionInput(params, tx, new byte[0],
+                new TransactionOutPoint(params, 0, Sha256Hash.of(new byte[]{-1}))));
+        tx.addOutput(Coin.valueOf(200_000), wallet.freshReceiveAddress());
+        receive(tx);
+        Threading.waitForUserCode();
+        assertEquals(1, updates.size());
+        assertEquals(tx.getHashAsString(), updates.get(0).getTxHash());
+
+        tx.getConfidence().setDepthInBlocks(1);
+        tx.getConfidence().queueListeners(TransactionConfidence.Listener.ChangeReason.DEPTH);
+        tx.getConfidence().queueListeners(TransactionConfidence.Listener.ChangeReason.DEPTH);
+        Threading.waitForUserCode();
+        assertEquals(2, updates.size());
+        assertEquals(1, updates.get(1).getConfirmations());
+    }
+
+    @Test
+    void WhenTransactionIsFinal_DepthChangesAreNotNotified() {
+        List<TransactionView> updates = new ArrayList<>();
+        index.setUpdateListener(updates::add);
+
+        for (int depth = 1; depth <= TransactionIndex.CONFIRMATIONS_NOTIFY_LIMIT + 3; depth++) {
+            spending.getConfidence().setDepthInBlocks(depth);
+            spending.getConfidence().queueListeners(TransactionConfidence.Listener.ChangeReason.DEPTH);
+            Threading.waitForUserCode();
+        }
+
+        assertEquals(TransactionIndex.CONFIRMATIONS_NOTIFY_LIMIT, updates.size());
+        // view read on demand is still exact
+        assertEquals(TransactionIndex.CONFIRMATIONS_NOTIFY_LIMIT + 3, viewOf(spending).getConfirmations());
+    }
+
+    private TransactionView viewOf(Transaction tx) {
+        return index.getAll().stream()
+                .filter(view -> view.getTxHash().equals(tx.getHashAsString()))
+                .findFirst().orElseThrow(AssertionError::new);
+    }
+}
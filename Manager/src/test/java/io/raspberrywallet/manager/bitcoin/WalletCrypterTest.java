@@ -0,0 +1,86 @@
+package io.raspberrywallet.manager.bitcoin;
+
+import io.raspberrywallet.contract.IncorrectPasswordException;
+import org.bitcoinj.crypto.KeyCrypterScrypt;
+import org.bitcoinj.params.TestNet3Params;
+import org.bitcoinj.wallet.Protos;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletCrypterTest {
+
+    private static final String password = "correct password";
+
+    private WalletCrypter walletCrypter;
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        walletCrypter = new WalletCrypter();
+        wallet = new Wallet(TestNet3Params.get());
+    }
+
+    @Test
+    void WhenKeyIsRetained_WalletCanBeEncryptedAndDecryptedRepeatedly() throws IncorrectPasswordException {
+        walletCrypter.encryptWallet(wallet, password);
+        assertTrue(walletCrypter.hasRetainedKey());
+
+        for (int i = 0; i < 3; i++) {
+            walletCrypter.decryptWallet(wallet, password);
+            assertFalse(wallet.isEncrypted());
+            walletCrypter.encryptWallet(wallet, password);
+            assertTrue(wallet.isEncrypted());
+        }
+
+        // new crypter has to derive the key from salt stored in the wallet
+        new WalletCrypter().decryptWallet(wallet, password);
+        assertFalse(wallet.isEncrypted());
+    }
+
+    @Test
+    void WhenPasswordDiffersFromRetainedKey_DecryptionFails() throws IncorrectPasswordException {
+        walletCrypter.encryptWallet(wallet, password);
+
+        assertThrows(IncorrectPasswordException.class, () -> walletCrypter.decryptWallet(wallet, "wrong password"));
+        assertTrue(wallet.isEncrypted());
+
+        walletCrypter.decryptWallet(wallet, password);
+        assertFalse(wallet.isEncrypted());
+    }
+
+    @Test
+    void WhenDestroyed_KeyIsWipedAndDerivedAgain() throws IncorrectPasswordException {
+        walletCrypter.encryptWallet(wallet, password);
+        walletCrypter.destroy();
+        assertFalse(walletCrypter.hasRetainedKey());
+
+        walletCrypter.decryptWallet(wallet, password);
+        assertTrue(walletCrypter.hasRetainedKey());
+        assertFalse(wallet.isEncrypted());
+    }
+
+    @Test
+    void WhenWalletUsesOtherParameters_ItMigratesOnEncryption() throws IncorrectPasswordException {
+        walletCrypter.encryptWallet(wallet, password);
+
+        Protos.ScryptParameters calibrated = Protos.ScryptParameters.newBuilder()
+                .setN(1 << 14)
+                .setR(8)
+                .setP(1)
+                .buildPartial();
+        WalletCrypter calibratedCrypter = new WalletCrypter(calibrated);
+        calibratedCrypter.decryptWallet(wallet, password);
+        calibratedCrypter.encryptWallet(wallet, password);
+
+        Protos.ScryptParameters migrated = ((KeyCrypterScrypt) wallet.getKeyCrypter()).getScryptParameters();
+        assertEquals(calibrated.getN(), migrated.getN());
+        assertEquals(calibrated.getP(), migrated.getP());
+
+        calibratedCrypter.destroy();
+        calibratedCrypter.decryptWallet(wallet, password);
+        assertFalse(wallet.isEncrypted());
+    }
+}
@@ -0,0 +1,68 @@
+package io.raspberrywallet.manager.bitcoin;
+
+import org.bitcoinj.params.TestNet3Params;
+import org.bitcoinj.wallet.UnreadableWalletException;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletSaveSchedulerTest {
+
+    private File directory;
+    private File walletFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("wallet").toFile();
+        walletFile = new File(directory, "test.wallet");
+    }
+
+    @Test
+    void WhenSavesAreRequestedInBurst_OnlyLatestSnapshotIsWritten() throws IOException {
+        WalletSaveScheduler scheduler = new WalletSaveScheduler(walletFile, TimeUnit.HOURS.toMillis(1));
+        for (int i = 0; i < 10; i++)
+            scheduler.requestSave(new byte[]{(byte) i});
+
+        assertTrue(scheduler.isSavePending());
+        assertFalse(walletFile.exists());
+
+        assertTrue(scheduler.flush(10, TimeUnit.SECONDS));
+        assertFalse(scheduler.isSavePending());
+        assertArrayEquals(new byte[]{9}, Files.readAllBytes(walletFile.toPath()));
+        assertTrue(scheduler.getLastSaveLatencyMillis() >= 0);
+        // temporary files are renamed or removed
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    @Test
+    void WhenWalletIsSaved_ItCanBeLoadedBack() throws UnreadableWalletException {
+        Wallet wallet = new Wallet(TestNet3Params.get());
+        WalletSaveScheduler scheduler = new WalletSaveScheduler(walletFile, 0);
+        scheduler.requestSave(wallet);
+        assertTrue(scheduler.flush(10, TimeUnit.SECONDS));
+
+        Wallet loaded = Wallet.loadFromFile(walletFile);
+        assertEquals(wallet.currentReceiveAddress(), loaded.currentReceiveAddress());
+    }
+
+    @Test
+    void WhenWriteFails_SnapshotStaysPending() {
+        File missingDirectory = new File(directory, "missing");
+        WalletSaveScheduler scheduler = new WalletSaveScheduler(new File(missingDirectory, "test.wallet"), 0);
+        scheduler.requestSave(new byte[]{1});
+
+        assertFalse(scheduler.flush(10, TimeUnit.SECONDS));
+        assertTrue(scheduler.isSavePending());
+        assertEquals(-1, scheduler.getLastSaveLatencyMillis());
+
+        assertTrue(missingDirectory.mkdir());
+        assertTrue(scheduler.flush(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,80 @@
+package io.raspberrywallet.manager.cryptography.crypto;
+
+import io.raspberrywallet.manager.cryptography.crypto.exceptions.DecryptionException;
+import io.raspberrywallet.manager.cryptography.crypto.exceptions.EncryptionException;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CryptoStreamTests {
+
+    private static final String password = "password";
+
+    // in bytes, bigger than the internal buffer and not aligned to it
+    private static final int dataSize = 3 * 64 * 1024 + 17;
+
+    private static byte[] randomData() {
+        byte[] data = new byte[dataSize];
+        new Random().nextBytes(data);
+        return data;
+    }
+
+    @Test
+    void WhenEncryptingStream_DataEqualsAfterDecryptionAndStatsAreReported()
+            throws EncryptionException, DecryptionException {
+        byte[] data = randomData();
+
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        TransferStats encryptionStats = new CryptoStream(new ByteArrayInputStream(data), encrypted).encrypt(password);
+
+        assertEquals(dataSize, encryptionStats.getBytesRead());
+        assertEquals(encrypted.size(), encryptionStats.getBytesWritten());
+        assertTrue(encryptionStats.getBytesWritten() > dataSize);
+
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        TransferStats decryptionStats = new CryptoStream(new ByteArrayInputStream(encrypted.toByteArray()), decrypted)
+                .decrypt(password);
+
+        assertArrayEquals(data, decrypted.toByteArray());
+        assertEquals(encrypted.size(), decryptionStats.getBytesRead());
+        assertEquals(dataSize, decryptionStats.getBytesWritten());
+    }
+
+    @Test
+    void WhenInputIsPipe_WholeStreamIsEncrypted() throws Exception {
+        byte[] data = randomData();
+        PipedOutputStream pipeSource = new PipedOutputStream();
+        PipedInputStream pipe = new PipedInputStream(pipeSource, 1024);
+
+        Thread writer = new Thread(() -> {
+            try (OutputStream outputStream = pipeSource) {
+                outputStream.write(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.start();
+
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        new CryptoStream(pipe, encrypted).encrypt(password);
+        writer.join();
+
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        new CryptoStream(new ByteArrayInputStream(encrypted.toByteArray()), decrypted).decrypt(password);
+        assertArrayEquals(data, decrypted.toByteArray());
+    }
+
+    @Test
+    void WhenHeaderIsTruncated_DecryptionExceptionIsThrown() throws EncryptionException {
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        new CryptoStream(new ByteArrayInputStream(randomData()), encrypted).encrypt(password);
+        byte[] truncated = new byte[10];
+        System.arraycopy(encrypted.toByteArray(), 0, truncated, 0, truncated.length);
+
+        assertThrows(DecryptionException.class, () ->
+                new CryptoStream(new ByteArrayInputStream(truncated), new ByteArrayOutputStream()).decrypt(password));
+    }
+}
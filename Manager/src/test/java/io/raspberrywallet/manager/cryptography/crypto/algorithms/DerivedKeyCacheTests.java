@@ -0,0 +1,72 @@
+package io.raspberrywallet.manager.cryptography.crypto.algorithms;
+
+import io.raspberrywallet.manager.common.wrappers.ByteWrapper;
+import io.raspberrywallet.manager.cryptography.crypto.AESEncryptedObject;
+import io.raspberrywallet.manager.cryptography.crypto.CryptoObject;
+import io.raspberrywallet.manager.cryptography.crypto.exceptions.DecryptionException;
+import io.raspberrywallet.manager.cryptography.crypto.exceptions.EncryptionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DerivedKeyCacheTests {
+
+    private static final String algorithm = "PBKDF2WithHmacSHA1";
+    private static final byte[] salt = "0123456789abcdef".getBytes();
+    private static final byte[] key = "derived key bytes".getBytes();
+
+    private DerivedKeyCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new DerivedKeyCache(2);
+    }
+
+    @Test
+    void CachedKeyIsReturnedOnlyForSamePasswordSaltAndIterations() {
+        cache.put(algorithm, salt, 16000, 256, "password", key);
+
+        assertArrayEquals(key, cache.get(algorithm, salt, 16000, 256, "password"));
+        assertNull(cache.get(algorithm, salt, 16000, 256, "other password"));
+        assertNull(cache.get(algorithm, salt, 1000, 256, "password"));
+        assertNull(cache.get(algorithm, "fedcba9876543210".getBytes(), 16000, 256, "password"));
+    }
+
+    @Test
+    void WhenCacheOverflows_LeastRecentlyUsedKeyIsEvicted() {
+        cache.put(algorithm, salt, 1, 256, "first", key);
+        cache.put(algorithm, salt, 1, 256, "second", key);
+        cache.get(algorithm, salt, 1, 256, "first");
+        cache.put(algorithm, salt, 1, 256, "third", key);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(algorithm, salt, 1, 256, "first"));
+        assertNull(cache.get(algorithm, salt, 1, 256, "second"));
+    }
+
+    @Test
+    void WhenDestroyed_AllKeysAreForgotten() {
+        cache.put(algorithm, salt, 16000, 256, "password", key);
+        cache.destroy();
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get(algorithm, salt, 16000, 256, "password"));
+    }
+
+    @Test
+    void ObjectEncryptedWithNewIv_DecryptsWithSamePassword() throws EncryptionException, DecryptionException {
+        ByteWrapper data = new ByteWrapper("secret data".getBytes());
+        AESCipherParams params = new AESCipherParams();
+        AESCipherParams nextParams = params.withNewIv();
+
+        assertArrayEquals(params.getKeySalt(), nextParams.getKeySalt());
+        assertFalse(Arrays.equals(params.getIvBytes(), nextParams.getIvBytes()));
+
+        AESEncryptedObject<ByteWrapper> encryptedObject = CryptoObject.encrypt(data, "password", nextParams);
+        assertEquals(data, CryptoObject.decrypt(encryptedObject, "password"));
+        assertThrows(DecryptionException.class, () -> CryptoObject.decrypt(encryptedObject, "wrong password"));
+    }
+}
@@ -0,0 +1,92 @@
+package io.raspberrywallet.manager.cryptography.sharedsecret.blakley.JLinAlg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldPMatrixTest {
+    private final long p = 2147483647L; // 2^31 - 1
+    private final int size = 5;
+
+    private FieldPMatrix randomMatrix(Random random) {
+        FieldPMatrix matrix = new FieldPMatrix(size, size, p);
+        for (int row = 1; row <= size; row++)
+            for (int col = 1; col <= size; col++)
+                matrix.set(row, col, random.nextLong());
+        return matrix;
+    }
+
+    @Test
+    void testDetEqualsJLinAlgDet() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10; i++) {
+            FieldPMatrix matrix = randomMatrix(random);
+            FieldElement expected = matrix.toMatrix().det();
+            assertEquals(expected, new FieldP(matrix.det(), p));
+        }
+
+        FieldPMatrix singular = new FieldPMatrix(new long[][]{{1, 2}, {2, 4}}, p);
+        assertEquals(0, singular.det());
+        assertEquals(1, singular.rank());
+        assertEquals(p - 2, new FieldPMatrix(new long[][]{{1, 2}, {3, 4}}, p).det());
+    }
+
+    @Test
+    void testInverse() {
+        FieldPMatrix matrix = randomMatrix(new Random(11));
+        FieldPMatrix identity = new FieldPMatrix(size, size, p);
+        for (int i = 1; i <= size; i++)
+            identity.set(i, i, 1);
+
+        assertEquals(identity, matrix.multiply(matrix.inverse()));
+        assertEquals(identity, matrix.inverse().multiply(matrix));
+        assertThrows(InvalidOperationException.class,
+                () -> new FieldPMatrix(new long[][]{{1, 2}, {2, 4}}, p).inverse());
+    }
+
+    @Test
+    void testSolve() {
+        Random random = new Random(13);
+        FieldPMatrix matrix = randomMatrix(random);
+        long[] x = new long[size];
+        for (int i = 0; i < size; i++)
+            x[i] = Math.floorMod(random.nextLong(), p);
+
+        FieldPMatrix column = new FieldPMatrix(size, 1, p);
+        for (int i = 0; i < size; i++)
+            column.set(i + 1, 1, x[i]);
+        FieldPMatrix b = matrix.multiply(column);
+        long[] bValues = new long[size];
+        for (int i = 0; i < size; i++)
+            bValues[i] = b.get(i + 1, 1);
+
+        assertArrayEquals(x, matrix.solve(bValues));
+    }
+
+    @Test
+    void testAdaptsRationalMatrix() {
+        Matrix rational = new Matrix(new FieldElement[][]{
+                {new Rational(1, 2), new Rational(-3, 1)},
+                {new Rational(5, 7), new Rational(0, 1)}});
+        FieldPMatrix matrix = rational.toFieldPMatrix(p);
+
+        assertEquals(1, matrix.get(1, 1) * 2 % p);
+        assertEquals(p - 3, matrix.get(1, 2));
+        assertEquals(5, matrix.get(2, 1) * 7 % p);
+        assertEquals(matrix, FieldPMatrix.fromMatrix(matrix.toMatrix(), p));
+    }
+
+    @Test
+    void testResetReusesBuffer() {
+        FieldPMatrix matrix = randomMatrix(new Random(17));
+        matrix.reset(7);
+
+        assertEquals(7, matrix.getP());
+        assertEquals(new FieldPMatrix(size, size, 7), matrix);
+        matrix.set(1, 1, 9);
+        assertEquals(2, matrix.get(1, 1));
+        assertThrows(IllegalArgumentException.class, () -> matrix.reset(1));
+    }
+}
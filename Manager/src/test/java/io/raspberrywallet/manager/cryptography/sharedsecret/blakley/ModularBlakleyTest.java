@@ -0,0 +1,54 @@
+package io.raspberrywallet.manager.cryptography.sharedsecret.blakley;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModularBlakleyTest {
+    private final int totalShares = 3; //number of generate keys
+    private final int requiredShares = 2; //number of keys for solve the secret (requiredShares <= totalShares)
+    private final int bits = 512; //number of bits of keys
+
+    @Test
+    void testModularBlakley() {
+        String secret = "Secret Sharing";
+        BigInteger[] pass = Blakley.divide(requiredShares, secret.getBytes());
+        BigInteger allKeys[][] = new BigInteger[totalShares][];
+        for (int i = 0; i < totalShares; i++)
+            allKeys[i] = Blakley.createdKey(pass, bits);
+
+        assertEquals(secret, new String(ModularBlakley.solutionKey(new BigInteger[][]{allKeys[0], allKeys[1]})));
+        assertEquals(secret, new String(ModularBlakley.solutionKey(new BigInteger[][]{allKeys[0], allKeys[2]})));
+        assertEquals(secret, new String(ModularBlakley.solutionKey(new BigInteger[][]{allKeys[1], allKeys[2]})));
+        // redundant key is checked, but does not change the solution
+        assertEquals(secret, new String(ModularBlakley.solutionKey(allKeys)));
+    }
+
+    @Test
+    void testSameResultAsRationalSolver() {
+        Random random = new Random(42);
+        for (int required = 1; required <= 6; required++) {
+            byte[] secret = new byte[32];
+            random.nextBytes(secret);
+            BigInteger[] pass = Blakley.divide(required, secret.clone());
+            BigInteger keys[][] = new BigInteger[required][];
+            for (int i = 0; i < required; i++)
+                keys[i] = Blakley.createdKey(pass, 256);
+
+            assertArrayEquals(pass, ModularBlakley.solve(keys));
+            assertArrayEquals(Blakley.solutionKey(keys), ModularBlakley.solutionKey(keys));
+        }
+    }
+
+    @Test
+    void testUnsolvableKeys() {
+        BigInteger[] pass = Blakley.divide(requiredShares, "Secret Sharing".getBytes());
+        BigInteger[] key = Blakley.createdKey(pass, bits);
+
+        assertThrows(IllegalArgumentException.class, () -> ModularBlakley.solutionKey(new BigInteger[][]{key}));
+        assertThrows(IllegalArgumentException.class, () -> ModularBlakley.solutionKey(new BigInteger[][]{key, key}));
+    }
+}
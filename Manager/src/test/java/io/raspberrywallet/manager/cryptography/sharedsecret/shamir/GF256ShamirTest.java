@@ -0,0 +1,67 @@
+package io.raspberrywallet.manager.cryptography.sharedsecret.shamir;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GF256ShamirTest {
+    private final int totalShares = 5; //number of generate shares
+    private final int requiredShares = 3; //number of shares for solve the secret (requiredShares <= totalShares)
+
+    @Test
+    void testFieldArithmetic() {
+        for (int a = 1; a < 256; a++) {
+            assertEquals(1, GF256Shamir.multiply(a, GF256Shamir.divide(1, a)));
+            for (int b = 1; b < 256; b += 7)
+                assertEquals(a, GF256Shamir.divide(GF256Shamir.multiply(a, b), b));
+        }
+        // example from FIPS-197
+        assertEquals(0xc1, GF256Shamir.multiply(0x57, 0x83));
+    }
+
+    @Test
+    void testGF256Shamir() throws ShamirException {
+        byte[] secret = "KotlinIsTheBest".getBytes();
+        GF256ShamirKey[] allKeys = GF256Shamir.split(secret, totalShares, requiredShares);
+
+        for (int i = 0; i < totalShares; i++)
+            for (int j = i + 1; j < totalShares; j++)
+                for (int k = j + 1; k < totalShares; k++)
+                    assertArrayEquals(secret, GF256Shamir.combine(allKeys[i], allKeys[j], allKeys[k]));
+
+        assertArrayEquals(secret, GF256Shamir.combine(allKeys));
+        assertFalse(Arrays.equals(secret, GF256Shamir.combine(allKeys[0], allKeys[1])));
+    }
+
+    @Test
+    void testRepeatedShareIsRejected() throws ShamirException {
+        GF256ShamirKey[] allKeys = GF256Shamir.split("secret".getBytes(), totalShares, requiredShares);
+        assertThrows(ShamirException.class, () -> GF256Shamir.combine(allKeys[0], allKeys[0], allKeys[1]));
+        assertThrows(ShamirException.class, () -> GF256Shamir.split("secret".getBytes(), 2, 3));
+    }
+
+    @Test
+    void testKeyEncoding() {
+        GF256ShamirKey key = new GF256ShamirKey(7, new byte[]{1, 2, 3});
+        GF256ShamirKey decoded = GF256ShamirKey.fromByteArray(key.toByteArray());
+
+        assertEquals(key.getX(), decoded.getX());
+        assertArrayEquals(key.getY(), decoded.getY());
+    }
+
+    @Test
+    void testSchemeIsDetectedFromKeyPart() throws ShamirException {
+        byte[] seed = "legal winner thank year wave sausage worth useful legal winner thank yellow".getBytes();
+
+        for (ShamirScheme scheme : ShamirScheme.values()) {
+            ShamirShares shares = scheme.split(seed, totalShares, requiredShares);
+            List<byte[]> keyParts = shares.getKeyParts();
+            assertEquals(scheme, ShamirScheme.of(keyParts.get(0)));
+            assertArrayEquals(seed, ShamirScheme.of(keyParts.get(0))
+                    .combine(keyParts.subList(1, 1 + requiredShares), shares.getParameters()));
+        }
+    }
+}
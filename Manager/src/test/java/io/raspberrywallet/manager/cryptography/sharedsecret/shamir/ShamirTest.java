@@ -1,11 +1,13 @@
 package io.raspberrywallet.manager.cryptography.sharedsecret.shamir;
 
 
+import org.bitcoinj.core.Base58;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class ShamirTest {
     private final int totalShares = 3; //number of generate shares
@@ -40,6 +42,29 @@ class ShamirTest {
         return new String(des);
     }
 
+    @Test
+    void testKeyEncoding() {
+        BigInteger p = new BigInteger("170141183460469231731687303715884105727");
+        ShamirKey key = new ShamirKey(p, BigInteger.valueOf(123456789), BigInteger.valueOf(42));
+        String legacy = Base58.encode(p.toByteArray()) + ":" + Base58.encode(key.getF().toByteArray())
+                + ":" + Base58.encode(key.getX().toByteArray());
+
+        assertKeyEquals(key, ShamirKey.fromByteArray(legacy.getBytes()));
+        assertKeyEquals(key, ShamirKey.fromByteArray(key.toByteArray()));
+        assertKeyEquals(key, ShamirKey.fromByteArray(key.toByteArrayWithoutPrime(), p));
+        assertTrue(key.toByteArray().length < legacy.length());
+
+        assertThrows(IllegalArgumentException.class, () -> ShamirKey.fromByteArray(key.toByteArrayWithoutPrime()));
+        byte[] truncated = Arrays.copyOf(key.toByteArray(), 5);
+        assertThrows(IllegalArgumentException.class, () -> ShamirKey.fromByteArray(truncated));
+    }
+
+    private void assertKeyEquals(ShamirKey expected, ShamirKey actual) {
+        assertEquals(expected.getP(), actual.getP());
+        assertEquals(expected.getF(), actual.getF());
+        assertEquals(expected.getX(), actual.getX());
+    }
+
     @Test
     void testShamirSpeed() throws ShamirException {
         String secret = "KotlinIsTheBest";
@@ -7,8 +7,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -65,4 +67,60 @@ class DatabaseTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    void JournaledKeyPartsAreRestoredWithoutSnapshot() {
+        try {
+            KeyPartEntity journaledKeypart = new KeyPartEntity("journaled".getBytes(), "PushButtonModule");
+            database.addKeyPart(journaledKeypart);
+            int walletHash = database.getWallet().hashCode();
+
+            database.destroy();
+            database.initDatabase();
+
+            assertEquals(walletHash, database.getWallet().hashCode());
+            assertTrue(database.getKeypartForModuleId("PushButtonModule").isPresent());
+
+        } catch (EncryptionException | DecryptionException | IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    void ShamirParametersAreRestoredFromJournal() {
+        try {
+            byte[] prime = {0x7f, 0x01};
+            KeyPartEntity keypart = new KeyPartEntity("keypart".getBytes(), "PushButtonModule");
+            database.addAllKeyParts(Collections.singletonList(keypart), 2, prime);
+
+            database.destroy();
+            database.initDatabase();
+
+            assertArrayEquals(prime, database.getShamirParameters());
+            assertEquals(2, database.getRequiredKeyParts());
+
+        } catch (EncryptionException | DecryptionException | IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    void TornJournalTailIsIgnored() {
+        try {
+            int walletHash = database.getWallet().hashCode();
+            File journalFile = Paths.get("/", "tmp", "wallet", "database.journal").toFile();
+            try (FileOutputStream outputStream = new FileOutputStream(journalFile, true)) {
+                // length prefix of a record which has never been completely written
+                outputStream.write(new byte[]{0, 0, 1, 0, 42, 42});
+            }
+
+            database.destroy();
+            database.initDatabase();
+
+            assertEquals(walletHash, database.getWallet().hashCode());
+
+        } catch (EncryptionException | DecryptionException | IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+package io.raspberrywallet.manager.modules.authorizationserver;
+
+import com.sun.net.httpserver.HttpServer;
+import io.raspberrywallet.manager.common.http.CircuitBreaker;
+import io.raspberrywallet.manager.common.http.RetryBudget;
+import io.raspberrywallet.manager.common.wrappers.Credentials;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a local stub of the authorization server
+ */
+class AuthorizationServerAPITests {
+
+    private final Credentials credentials = new Credentials("wallet", "password");
+
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Number of next requests answered with 503
+     */
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private volatile long responseDelayMillis;
+
+    private HttpServer server;
+    private AuthorizationServerConfig config;
+    private AuthorizationServerAPI serverAPI;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            requests.computeIfAbsent(exchange.getRequestURI().getPath(), path -> new AtomicInteger()).incrementAndGet();
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            try (InputStream requestBody = exchange.getRequestBody()) {
+                while (requestBody.read() != -1) ;
+            }
+            try {
+                Thread.sleep(responseDelayMillis);
+            } catch (InterruptedException ignored) {
+            }
+
+            if (failuresLeft.getAndDecrement() > 0) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            byte[] response = exchange.getRequestURI().getPath().endsWith("/login") ? "token".getBytes() : "secret".getBytes();
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(response);
+            }
+        });
+        server.start();
+
+        config = new AuthorizationServerConfig();
+        config.setAddress("http://localhost:" + server.getAddress().getPort());
+        config.setRetryDelay(10);
+        config.setMaxRetryDelay(50);
+        serverAPI = new AuthorizationServerAPI(config);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private int requestCount(String endpoint) {
+        AtomicInteger count = requests.get(endpoint);
+        return count == null ? 0 : count.get();
+    }
+
+    @Test
+    void WhenLoggedIn_RegistrationAndSecretStateAreCached() throws Exception {
+        RetryBudget budget = serverAPI.newRetryBudget();
+        assertFalse(serverAPI.isLoggedIn(credentials));
+        serverAPI.login(credentials, budget).get();
+        assertTrue(serverAPI.isLoggedIn(credentials));
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(serverAPI.isRegistered(credentials, budget).get());
+            assertTrue(serverAPI.secretIsSet(credentials, budget).get());
+            assertEquals("secret", serverAPI.getSecret(credentials, budget).get());
+        }
+
+        assertEquals(0, requestCount("/authorization/exists"));
+        assertEquals(1, requestCount("/authorization/secret/exists"));
+        assertEquals(3, requestCount("/authorization/secret/get"));
+
+        serverAPI.invalidateSession(credentials);
+        assertFalse(serverAPI.isLoggedIn(credentials));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> serverAPI.getSecret(credentials, budget).get());
+        assertTrue(e.getCause() instanceof RequestException);
+    }
+
+    @Test
+    void WhenPasswordDiffers_CachedSessionIsNotUsed() throws Exception {
+        RetryBudget budget = serverAPI.newRetryBudget();
+        serverAPI.login(credentials, budget).get();
+        Credentials wrongPassword = new Credentials(credentials.getName(), "wrong password");
+
+        assertFalse(serverAPI.isLoggedIn(wrongPassword));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> serverAPI.getSecret(wrongPassword, budget).get());
+        assertTrue(e.getCause() instanceof RequestException);
+        assertEquals(0, requestCount("/authorization/secret/get"));
+
+        // session of the right password is kept
+        assertEquals("secret", serverAPI.getSecret(credentials, budget).get());
+    }
+
+    @Test
+    void WhenSendingSequentialRequests_ConnectionIsReused() throws Exception {
+        RetryBudget budget = serverAPI.newRetryBudget();
+        serverAPI.login(credentials, budget).get();
+        for (int i = 0; i < 10; i++)
+            serverAPI.getSecret(credentials, budget).get();
+
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void WhenServerFailsTemporarily_RequestIsRetriedWithinBudget() throws Exception {
+        failuresLeft.set(2);
+        RetryBudget budget = serverAPI.newRetryBudget();
+        serverAPI.login(credentials, budget).get();
+
+        assertEquals(3, requestCount("/authorization/login"));
+        assertEquals(3, budget.getAttempts());
+
+        // one retry is left in the budget of this operation
+        failuresLeft.set(2);
+        assertThrows(ExecutionException.class, () -> serverAPI.getSecret(credentials, budget).get());
+        assertEquals(2, requestCount("/authorization/secret/get"));
+    }
+
+    @Test
+    void WhenServerIsSlow_RequestFailsAfterReadTimeout() {
+        config.setReadTimeout(100);
+        config.setMaxRetries(0);
+        serverAPI = new AuthorizationServerAPI(config);
+        responseDelayMillis = 1000;
+
+        long start = System.nanoTime();
+        assertThrows(ExecutionException.class, () -> serverAPI.login(credentials, serverAPI.newRetryBudget()).get());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 900);
+    }
+
+    @Test
+    void WhenEndpointKeepsFailing_CircuitOpensAndFailsFast() throws Exception {
+        config.setCircuitBreakerThreshold(3);
+        config.setMaxRetries(0);
+        serverAPI = new AuthorizationServerAPI(config);
+        String loginEndpoint = config.getLoginEndpoint();
+
+        failuresLeft.set(3);
+        for (int i = 0; i < 3; i++)
+            assertThrows(ExecutionException.class, () -> serverAPI.login(credentials, serverAPI.newRetryBudget()).get());
+        assertEquals(CircuitBreaker.State.OPEN, serverAPI.getCircuitState(loginEndpoint));
+
+        assertThrows(ExecutionException.class, () -> serverAPI.login(credentials, serverAPI.newRetryBudget()).get());
+        assertEquals(3, requestCount("/authorization/login"));
+
+        // other endpoints are not affected
+        serverAPI.isRegistered(credentials, serverAPI.newRetryBudget()).get();
+        assertEquals(CircuitBreaker.State.CLOSED, serverAPI.getCircuitState(config.getWalletExistsEndpoint()));
+    }
+}
@@ -0,0 +1,19 @@
+package io.raspberrywallet.contract;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Wallet balances in BTC unit, see {@link Manager#getEstimatedBalance()} and {@link Manager#getAvailableBalance()}
+ */
+@Getter
+@EqualsAndHashCode
+public class BalanceView {
+    private final String estimatedBalance;
+    private final String availableBalance;
+
+    public BalanceView(String estimatedBalance, String availableBalance) {
+        this.estimatedBalance = estimatedBalance;
+        this.availableBalance = availableBalance;
+    }
+}
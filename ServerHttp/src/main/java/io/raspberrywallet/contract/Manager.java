@@ -4,12 +4,13 @@ package io.raspberrywallet.contract;
 import io.raspberrywallet.contract.module.Module;
 import io.raspberrywallet.contract.module.ModuleState;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
-import java.util.function.DoubleConsumer;
+import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 
 public interface Manager {
@@ -131,6 +132,17 @@ public interface Manager {
      */
     List<TransactionView> getAllTransactions() throws WalletNotInitialized;
 
+    /**
+     * @param cursor    nextCursor of the previous page, null for the newest transactions
+     * @param limit     maximum number of transactions in the page
+     * @param address   only transactions with this input or output address, if not null
+     * @param direction only transactions in this direction, if not null
+     * @return page of wallet related transactions, from the newest
+     * @throws IllegalArgumentException when the cursor is malformed
+     */
+    TransactionPage getTransactions(@Nullable String cursor, int limit, @Nullable String address,
+                                    @Nullable TransactionDirection direction) throws WalletNotInitialized;
+
     /*
      * Utilities
      */
@@ -149,6 +161,11 @@ public interface Manager {
      */
     void tap();
 
+    /**
+     * @return seconds remaining to auto lock, 0 when auto lock is not armed
+     */
+    int getAutoLockRemainingSeconds();
+
     /**
      * Sets database password
      */
@@ -197,12 +214,28 @@ public interface Manager {
     void uploadNewModule(File moduleFile, String moduleName) throws ModuleUploadException;
 
     /**
-     * @param listener blockchain synchronization progress listener
+     * @param listener blockchain synchronization progress listener, called at most once per sampling interval
      */
-    void addBlockChainProgressListener(@NotNull DoubleConsumer listener);
+    void addBlockChainProgressListener(@NotNull Consumer<SyncProgress> listener);
+
+    /**
+     * @return latest sample of blockchain synchronization progress, null before synchronization started
+     */
+    @Nullable
+    SyncProgress getSyncProgress();
 
     /**
      * @param listener remaining auto lock time listener
      */
     void addAutoLockChannelListener(@NotNull IntConsumer listener);
+
+    /**
+     * @param listener called with new balances whenever they change
+     */
+    void addBalanceListener(@NotNull Consumer<BalanceView> listener);
+
+    /**
+     * @param listener called with every new transaction and every change of already known one
+     */
+    void addTransactionListener(@NotNull Consumer<TransactionView> listener);
 }
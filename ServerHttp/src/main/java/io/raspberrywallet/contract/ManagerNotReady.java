@@ -0,0 +1,11 @@
+package io.raspberrywallet.contract;
+
+/**
+ * Thrown when a call needs subsystems which are still starting or have failed to start
+ */
+public class ManagerNotReady extends RuntimeException {
+
+    public ManagerNotReady(String msg) {
+        super(msg);
+    }
+}
@@ -19,4 +19,21 @@ public class ServerConfig {
     public int port = 9080;
     @JsonProperty("secure-port")
     public int securePort = 9433;
+    /**
+     * Indented JSON responses, for debugging only
+     */
+    @JsonProperty("pretty-json")
+    public boolean prettyJson = false;
+    /**
+     * Responses smaller than that are not compressed
+     */
+    @JsonProperty("compression-min-size")
+    public long compressionMinSize = 1024;
+    /**
+     * TLS sessions kept for resumption without full handshake
+     */
+    @JsonProperty("tls-session-cache-size")
+    public int tlsSessionCacheSize = 1024;
+    @JsonProperty("tls-session-timeout-seconds")
+    public int tlsSessionTimeoutSeconds = 60 * 60 * 24;
 }
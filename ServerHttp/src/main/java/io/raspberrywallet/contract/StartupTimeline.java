@@ -0,0 +1,108 @@
+package io.raspberrywallet.contract;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Durations of startup phases, offsets are measured from the JVM start.
+ * Getters are written out as it is read from Kotlin
+ */
+public class StartupTimeline {
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final List<Phase> phases = new CopyOnWriteArrayList<>();
+
+    public StartupTimeline() {
+        // class loading and everything else before the timeline existed
+        phases.add(new Phase("jvm", Thread.currentThread().getName(), 0, System.currentTimeMillis() - jvmStartMillis, null));
+    }
+
+    public interface Step<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Runs the step on the calling thread and records how long it took, also when it failed
+     */
+    public <T> T record(String name, Step<T> step) throws Exception {
+        long start = System.currentTimeMillis();
+        try {
+            T result = step.run();
+            add(name, start, null);
+            return result;
+        } catch (Exception e) {
+            add(name, start, e.toString());
+            throw e;
+        }
+    }
+
+    /**
+     * Records an instant, e.g. the moment everything is ready
+     */
+    public void mark(String name) {
+        add(name, System.currentTimeMillis(), null);
+    }
+
+    private void add(String name, long startMillis, @Nullable String error) {
+        phases.add(new Phase(name, Thread.currentThread().getName(), startMillis - jvmStartMillis,
+                System.currentTimeMillis() - startMillis, error));
+    }
+
+    /**
+     * @return recorded phases ordered by their start
+     */
+    public List<Phase> getPhases() {
+        List<Phase> sorted = new ArrayList<>(phases);
+        sorted.sort(Comparator.comparingLong(Phase::getStartMillis));
+        return sorted;
+    }
+
+    /**
+     * @return milliseconds from the JVM start to the end of the last recorded phase
+     */
+    public long getTotalMillis() {
+        return phases.stream().mapToLong(phase -> phase.startMillis + phase.durationMillis).max().orElse(0);
+    }
+
+    public static class Phase {
+        private final String name;
+        private final String thread;
+        private final long startMillis;
+        private final long durationMillis;
+        @Nullable
+        private final String error;
+
+        Phase(String name, String thread, long startMillis, long durationMillis, @Nullable String error) {
+            this.name = name;
+            this.thread = thread;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+            this.error = error;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        @Nullable
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package io.raspberrywallet.contract;
+
+/**
+ * Sample of blockchain synchronization progress, getters are written out as it is read from Kotlin
+ */
+public class SyncProgress {
+    /**
+     * Downloaded part of the blockchain in percents
+     */
+    private final double percentage;
+    private final int blocksLeft;
+    private final double blocksPerSecond;
+
+    /**
+     * Estimated seconds until synchronization is done, -1 when unknown
+     */
+    private final long etaSeconds;
+    private final int peerCount;
+
+    public SyncProgress(double percentage, int blocksLeft, double blocksPerSecond, long etaSeconds, int peerCount) {
+        this.percentage = percentage;
+        this.blocksLeft = blocksLeft;
+        this.blocksPerSecond = blocksPerSecond;
+        this.etaSeconds = etaSeconds;
+        this.peerCount = peerCount;
+    }
+
+    public double getPercentage() {
+        return percentage;
+    }
+
+    public int getBlocksLeft() {
+        return blocksLeft;
+    }
+
+    public double getBlocksPerSecond() {
+        return blocksPerSecond;
+    }
+
+    public long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public int getPeerCount() {
+        return peerCount;
+    }
+}
@@ -0,0 +1,6 @@
+package io.raspberrywallet.contract;
+
+public enum TransactionDirection {
+    INCOMING, // Wallet received more than it spent
+    OUTGOING // Wallet spent at least as much as it received
+}
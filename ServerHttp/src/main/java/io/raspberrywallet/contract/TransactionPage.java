@@ -0,0 +1,25 @@
+package io.raspberrywallet.contract;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Transactions from the newest, continued by passing nextCursor to the next query
+ */
+@Getter
+public class TransactionPage {
+    private final List<TransactionView> transactions;
+
+    /**
+     * Null when there are no more transactions
+     */
+    @Nullable
+    private final String nextCursor;
+
+    public TransactionPage(List<TransactionView> transactions, @Nullable String nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+}
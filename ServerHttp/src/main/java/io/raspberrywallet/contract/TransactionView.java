@@ -37,6 +37,14 @@ public class TransactionView {
         this.confirmations = confirmations;
     }
 
+    /**
+     * @return copy sharing everything but the confirmations
+     */
+    public TransactionView withConfirmations(int confirmations) {
+        return new TransactionView(txHash, creationTimestamp, inputAddresses, outputAddresses,
+            amountFromMe, amountToMe, fee, confirmations);
+    }
+
     @Override
     public String toString() {
         return "txHash: " + txHash +
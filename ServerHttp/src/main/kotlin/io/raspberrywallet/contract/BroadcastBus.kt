@@ -0,0 +1,67 @@
+package io.raspberrywallet.contract
+
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.channels.ReceiveChannel
+import java.io.Closeable
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Delivers every published element to all subscribers without ever blocking the publisher.
+ * Each subscriber has its own buffer, when a slow subscriber's buffer is full its oldest element is dropped and counted.
+ */
+class BroadcastBus<T>(private val capacity: Int = DEFAULT_CAPACITY) {
+    private val subscriptions = CopyOnWriteArrayList<Subscription>()
+    private val published = AtomicLong()
+    private val dropped = AtomicLong()
+
+    val publishedCount: Long get() = published.get()
+    val droppedCount: Long get() = dropped.get()
+    val subscribersCount: Int get() = subscriptions.size
+
+    fun publish(element: T) {
+        published.incrementAndGet()
+        subscriptions.forEach { it.offer(element) }
+    }
+
+    /**
+     * @param filter only accepted elements are buffered for this subscriber
+     */
+    fun openSubscription(filter: (T) -> Boolean = { true }): Subscription =
+        Subscription(filter).also { subscriptions.add(it) }
+
+    fun metrics() = mapOf(
+        "published" to publishedCount,
+        "dropped" to droppedCount,
+        "subscribers" to subscribersCount.toLong())
+
+    inner class Subscription internal constructor(private val filter: (T) -> Boolean) : Closeable {
+        private val buffer = Channel<T>(capacity)
+        private val droppedBySubscriber = AtomicLong()
+
+        val channel: ReceiveChannel<T> get() = buffer
+        val droppedCount: Long get() = droppedBySubscriber.get()
+
+        @Synchronized
+        internal fun offer(element: T) {
+            if (buffer.isClosedForSend || !filter(element))
+                return
+            while (!buffer.offer(element)) {
+                if (buffer.poll() != null) {
+                    droppedBySubscriber.incrementAndGet()
+                    dropped.incrementAndGet()
+                }
+            }
+        }
+
+        @Synchronized
+        override fun close() {
+            subscriptions.remove(this)
+            buffer.close()
+        }
+    }
+
+    companion object {
+        const val DEFAULT_CAPACITY = 16
+    }
+}
@@ -1,17 +1,18 @@
 package io.raspberrywallet.contract
 
-import kotlinx.coroutines.channels.Channel
-
-class CommunicationChannel(val channel: Channel<Message> = Channel(10)) {
+/**
+ * Messages for the frontend, every subscriber receives all of them
+ */
+class CommunicationChannel(val bus: BroadcastBus<Message> = BroadcastBus()) {
     fun success(string: String) {
-        channel.offer(Message.SuccessMessage(string))
+        bus.publish(Message.SuccessMessage(string))
     }
 
     fun error(string: String) {
-        channel.offer(Message.ErrorMessage(string))
+        bus.publish(Message.ErrorMessage(string))
     }
 
     fun info(string: String) {
-        channel.offer(Message.InfoMessage(string))
+        bus.publish(Message.InfoMessage(string))
     }
 }
@@ -1,7 +1,11 @@
 package io.raspberrywallet.mock
 
+import io.raspberrywallet.contract.BalanceView
 import io.raspberrywallet.contract.Manager
 import io.raspberrywallet.contract.Response
+import io.raspberrywallet.contract.SyncProgress
+import io.raspberrywallet.contract.TransactionDirection
+import io.raspberrywallet.contract.TransactionPage
 import io.raspberrywallet.contract.TransactionView
 import io.raspberrywallet.contract.WalletStatus
 import io.raspberrywallet.contract.module.Module
@@ -9,7 +13,7 @@ import io.raspberrywallet.contract.module.ModuleState
 import io.raspberrywallet.contract.step.SimpleStep
 import java.io.File
 import java.security.SecureRandom
-import java.util.function.DoubleConsumer
+import java.util.function.Consumer
 import java.util.function.IntConsumer
 import java.util.stream.Collectors.toMap
 
@@ -53,6 +57,9 @@ class ManagerMock : Manager {
 
     override fun getAllTransactions() = List(5) { newRandomTransaction() }
 
+    override fun getTransactions(cursor: String?, limit: Int, address: String?, direction: TransactionDirection?) =
+        TransactionPage(List(Math.min(limit, 5)) { newRandomTransaction() }, null)
+
     private fun newRandomTransaction() = TransactionView(
         Base58.encode(random.generateSeed(32)),
         random.nextLong(),
@@ -68,15 +75,26 @@ class ManagerMock : Manager {
         random.nextInt(100))
 
 
-    override fun addBlockChainProgressListener(listener: DoubleConsumer) {
-        listener.accept(100.0)
+    override fun addBlockChainProgressListener(listener: Consumer<SyncProgress>) {
+        listener.accept(syncProgress)
     }
 
+    override fun getSyncProgress() = SyncProgress(100.0, 0, 0.0, 0, 8)
+
     override fun addAutoLockChannelListener(listener: IntConsumer) {}
+
+    override fun addBalanceListener(listener: Consumer<BalanceView>) {
+        listener.accept(BalanceView(estimatedBalance, availableBalance))
+    }
+
+    override fun addTransactionListener(listener: Consumer<TransactionView>) {
+        allTransactions.forEach(listener)
+    }
     override fun uploadNewModule(inputFile: File?, filename: String) {}
     override fun loadWalletFromDisk(moduleToInputsMap: MutableMap<String, MutableMap<String, String>>) {}
     override fun setDatabasePassword(password: String) {}
     override fun tap() {}
+    override fun getAutoLockRemainingSeconds() = 300
     override fun sendCoins(amount: String, recipientAddress: String) {}
     override fun ping() = "pong"
 
@@ -0,0 +1,73 @@
+package io.raspberrywallet.server
+
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.withContext
+import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Fixed pool for blocking Manager calls (scrypt, module I/O, file writes, processes), keeping them off
+ * the engine threads so cheap routes stay responsive. Each route limits how many of its calls run at once,
+ * the rest wait suspended without occupying any thread.
+ */
+class BlockingDispatcher(threads: Int = DEFAULT_THREADS) {
+    private val threadNumber = AtomicInteger()
+    private val executor = ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, LinkedBlockingQueue()) { runnable ->
+        Thread(runnable, "KtorBlocking-${threadNumber.incrementAndGet()}").apply { isDaemon = true }
+    }
+    private val dispatcher = executor.asCoroutineDispatcher()
+    private val routes = ConcurrentHashMap<String, Route>()
+
+    /**
+     * @param limit maximum number of concurrent calls of this route
+     */
+    fun route(name: String, limit: Int = 1): Route = routes.computeIfAbsent(name) { Route(it, limit) }
+
+    fun metrics() = mapOf(
+        "threads" to executor.poolSize,
+        "activeThreads" to executor.activeCount,
+        "queued" to executor.queue.size,
+        "routes" to routes.values.associate { it.name to it.metrics() })
+
+    inner class Route internal constructor(val name: String, val limit: Int) {
+        private val permits = Channel<Unit>(limit)
+        private val waiting = AtomicInteger()
+        private val active = AtomicInteger()
+        private val completed = AtomicLong()
+        private val failed = AtomicLong()
+
+        suspend fun <T> run(block: () -> T): T {
+            waiting.incrementAndGet()
+            try {
+                permits.send(Unit)
+            } finally {
+                waiting.decrementAndGet()
+            }
+
+            active.incrementAndGet()
+            try {
+                return withContext(dispatcher) { block() }
+                    .also { completed.incrementAndGet() }
+            } catch (e: Throwable) {
+                failed.incrementAndGet()
+                throw e
+            } finally {
+                active.decrementAndGet()
+                permits.poll()
+            }
+        }
+
+        fun metrics() = mapOf(
+            "limit" to limit.toLong(),
+            "active" to active.get().toLong(),
+            "waiting" to waiting.get().toLong(),
+            "completed" to completed.get(),
+            "failed" to failed.get())
+    }
+
+    companion object {
+        const val DEFAULT_THREADS = 4
+    }
+}
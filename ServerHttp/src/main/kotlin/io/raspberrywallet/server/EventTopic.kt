@@ -0,0 +1,42 @@
+package io.raspberrywallet.server
+
+/**
+ * Kinds of events multiplexed over the events WebSocket
+ *
+ * @param id name used in frames and subscriptions
+ * @param throttleMillis minimal interval between frames, only the latest value is sent after it passes
+ */
+enum class EventTopic(val id: String, val throttleMillis: Long = 0) {
+    SYNC_PROGRESS("syncProgress", 500),
+    AUTOLOCK("autolock"),
+    BALANCE("balance"),
+    TRANSACTION("transaction"),
+    INFO("info"),
+    ERROR("error"),
+    SUCCESS("success");
+
+    companion object {
+        private val byId = values().associateBy(EventTopic::id)
+
+        /**
+         * @param ids comma separated topic ids, all topics when null
+         * @throws IllegalArgumentException when a topic is unknown
+         */
+        fun parse(ids: String?): Set<EventTopic> =
+            if (ids == null) values().toSet()
+            else parse(ids.split(',').map(String::trim).filter(String::isNotEmpty))
+
+        fun parse(ids: Collection<String>): Set<EventTopic> =
+            ids.map { byId[it] ?: throw IllegalArgumentException("Unknown topic $it") }.toSet()
+    }
+}
+
+/**
+ * Frame of the events WebSocket
+ */
+data class Event(val topic: String, val data: Any)
+
+/**
+ * Client frame changing the subscribed topics of the events WebSocket
+ */
+data class EventSubscription(val subscribe: List<String> = emptyList(), val unsubscribe: List<String> = emptyList())
@@ -81,7 +81,10 @@ val indexPage = HtmlContent {
     }
 }
 
-val setNetwork = HtmlContent {
+/**
+ * @param networks found by scanning, which is blocking, so it is done before rendering
+ */
+fun setNetwork(networks: Array<String>) = HtmlContent {
     head {
         title { +"Change Wi-Fi settings" }
         link(rel = "Stylesheet", type = "text/css", href = "/style.css")
@@ -96,7 +99,7 @@ val setNetwork = HtmlContent {
             select {
                 id = "ssid"
                 name = "ssid"
-                for (network in globalManager.networkList) {
+                for (network in networks) {
                     option {
                         value = network
                         +network
@@ -115,7 +118,10 @@ val setNetwork = HtmlContent {
     }
 }
 
-val status = HtmlContent {
+/**
+ * Values are read by the route beforehand, as reading them runs blocking system commands
+ */
+fun status(cpuTemperature: String, wifiStatus: Map<String, String>, wifiConfig: Map<String, String>) = HtmlContent {
     head {
         title { +"System status" }
         link(rel = "Stylesheet", type = "text/css", href = "/style.css")
@@ -126,22 +132,22 @@ val status = HtmlContent {
         div(classes = "temperature") {
             +"Temperature: "
             when {
-                globalManager.cpuTemperature.toFloat() > 47 -> span(classes = "hot") { +(globalManager.cpuTemperature + " 'C") }
-                globalManager.cpuTemperature.toFloat() < 40 -> span(classes = "cold") { +(globalManager.cpuTemperature + " 'C") }
-                else -> span(classes = "medium") { +(globalManager.cpuTemperature + " 'C") }
+                cpuTemperature.toFloat() > 47 -> span(classes = "hot") { +(cpuTemperature + " 'C") }
+                cpuTemperature.toFloat() < 40 -> span(classes = "cold") { +(cpuTemperature + " 'C") }
+                else -> span(classes = "medium") { +(cpuTemperature + " 'C") }
             }
         }
         a(href = Paths.Network.setupWiFi) {
             +"Configure Wi-Fi"
         }
         table {
-            for ((param, value) in globalManager.wifiStatus) {
+            for ((param, value) in wifiStatus) {
                 tr {
                     td(classes = "param") { +param }
                     td { +value }
                 }
             }
-            for ((param, value) in globalManager.wifiConfig) {
+            for ((param, value) in wifiConfig) {
                 tr {
                     td(classes = "param") { +param }
                     td { +value }
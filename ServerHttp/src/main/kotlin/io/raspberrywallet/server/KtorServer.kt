@@ -1,21 +1,31 @@
 package io.raspberrywallet.server
 
+import com.fasterxml.jackson.core.JsonProcessingException
 import com.fasterxml.jackson.core.type.TypeReference
 import com.fasterxml.jackson.databind.SerializationFeature
 import com.fasterxml.jackson.module.kotlin.jacksonObjectMapper
 import io.ktor.application.Application
+import io.ktor.application.ApplicationCall
 import io.ktor.application.call
 import io.ktor.application.install
 import io.ktor.features.*
+import io.ktor.http.ContentType
+import io.ktor.http.HttpHeaders
 import io.ktor.http.HttpStatusCode
+import io.ktor.http.cio.websocket.CloseReason
 import io.ktor.http.cio.websocket.Frame
+import io.ktor.http.cio.websocket.close
+import io.ktor.http.cio.websocket.readText
+import io.ktor.http.cio.websocket.WebSocketSession
 import io.ktor.http.content.*
-import io.ktor.jackson.jackson
+import io.ktor.jackson.JacksonConverter
 import io.ktor.request.receive
 import io.ktor.request.receiveMultipart
 import io.ktor.request.receiveParameters
 import io.ktor.request.receiveText
+import io.ktor.response.header
 import io.ktor.response.respond
+import io.ktor.response.respondBytes
 import io.ktor.response.respondRedirect
 import io.ktor.routing.get
 import io.ktor.routing.post
@@ -48,13 +58,19 @@ import io.raspberrywallet.server.Paths.Network.statusEndpoint
 import io.raspberrywallet.server.Paths.Network.wifiStatus
 import io.raspberrywallet.server.Paths.Utils.allTransactions
 import io.raspberrywallet.server.Paths.Utils.cpuTemp
+import io.raspberrywallet.server.Paths.Utils.metrics
 import io.raspberrywallet.server.Paths.Utils.ping
+import io.raspberrywallet.server.Paths.Utils.startup
 import io.raspberrywallet.server.Paths.Utils.setDatabasePassword
+import io.raspberrywallet.server.Paths.Utils.transactions
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.ConflatedBroadcastChannel
+import kotlinx.coroutines.channels.ReceiveChannel
+import kotlinx.coroutines.channels.consume
 import kotlinx.coroutines.channels.consumeEach
-import kotlinx.coroutines.channels.filter
-import kotlinx.coroutines.channels.sendBlocking
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 import kotlinx.coroutines.yield
 import org.slf4j.event.Level
@@ -63,23 +79,32 @@ import java.io.FileInputStream
 import java.io.InputStream
 import java.io.OutputStream
 import java.security.KeyStore
+import java.security.MessageDigest
+import java.util.*
 
-lateinit var globalManager: Manager
-
-class KtorServer(val manager: Manager,
-                 private val serverConfig: ServerConfig,
-                 private val communicationChannel: CommunicationChannel) {
+class KtorServer @JvmOverloads constructor(val manager: Manager,
+                                          private val serverConfig: ServerConfig,
+                                          private val communicationChannel: CommunicationChannel,
+                                          private val startupTimeline: StartupTimeline = StartupTimeline()) {
 
     private val applicationEngine: ApplicationEngine
     private val keyStoreFile: File = File(".", serverConfig.keystoreName) //TODO move keystore into basePath
     private val keyStore: KeyStore = KeyStore.getInstance(KeyStore.getDefaultType()).apply {
         load(FileInputStream(keyStoreFile), serverConfig.keystorePassword)
     }
-    private val blockChainSyncProgressionChannel = Channel<Double>(Channel.CONFLATED)
-    private val autoLockChannel = Channel<Int>(Channel.CONFLATED)
+    private val blockChainSyncProgressionChannel = ConflatedBroadcastChannel<SyncProgress>()
+    private val autoLockChannel = ConflatedBroadcastChannel<Int>()
+    private val balanceChannel = ConflatedBroadcastChannel<BalanceView>()
+    private val transactionBus = BroadcastBus<TransactionView>(transactionUpdatesCapacity)
+    private val frameMapper = jacksonObjectMapper()
+    private val blocking = BlockingDispatcher()
+    private val tlsMetrics = TlsMetrics(serverConfig.tlsSessionCacheSize, serverConfig.tlsSessionTimeoutSeconds)
+    private val responseMapper = jacksonObjectMapper().apply {
+        if (serverConfig.prettyJson)
+            enable(SerializationFeature.INDENT_OUTPUT)
+    }
 
     init {
-        globalManager = manager
         val env = applicationEngineEnvironment {
             module {
                 mainModule()
@@ -92,13 +117,24 @@ class KtorServer(val manager: Manager,
                 keyStorePath = keyStoreFile.absoluteFile
             }
         }
-        applicationEngine = embeddedServer(Netty, env)
+        applicationEngine = embeddedServer(Netty, env) {
+            configureBootstrap = {
+                handler(tlsMetrics)
+            }
+        }
 
         manager.addBlockChainProgressListener { progress ->
-            blockChainSyncProgressionChannel.sendBlocking(progress)
+            blockChainSyncProgressionChannel.offer(progress)
         }
         manager.addAutoLockChannelListener { secondsRemaining ->
-            autoLockChannel.sendBlocking(secondsRemaining)
+            autoLockChannel.offer(secondsRemaining)
+        }
+        // called from bitcoinj user thread, which must not be blocked by slow clients
+        manager.addBalanceListener { balance ->
+            balanceChannel.offer(balance)
+        }
+        manager.addTransactionListener { transaction ->
+            transactionBus.publish(transaction)
         }
     }
 
@@ -113,8 +149,16 @@ class KtorServer(val manager: Manager,
 
     fun Application.mainModule() {
         install(ContentNegotiation) {
-            jackson {
-                enable(SerializationFeature.INDENT_OUTPUT)
+            register(ContentType.Application.Json, JacksonConverter(responseMapper))
+        }
+        install(Compression) {
+            gzip {
+                priority = 1.0
+                minimumSize(serverConfig.compressionMinSize)
+            }
+            deflate {
+                priority = 10.0
+                minimumSize(serverConfig.compressionMinSize)
             }
         }
         install(CallLogging) {
@@ -129,6 +173,12 @@ class KtorServer(val manager: Manager,
             exception<WalletNotInitialized> {
                 call.respond(HttpStatusCode.MethodNotAllowed, mapOf("message" to "Wallet not initialized"))
             }
+            exception<ManagerNotReady> { cause ->
+                call.respond(HttpStatusCode.ServiceUnavailable, mapOf("message" to cause.message))
+            }
+            exception<IllegalArgumentException> { cause ->
+                call.respond(HttpStatusCode.BadRequest, mapOf("message" to cause.message))
+            }
             exception<SecurityException> { cause ->
                 call.respond(HttpStatusCode.Forbidden, mapOf("message" to cause))
             }
@@ -147,7 +197,9 @@ class KtorServer(val manager: Manager,
             /* Index */
             get(statusEndpoint) {
                 manager.tap()
-                call.respond(status)
+                call.respond(blocking.route(statusEndpoint).run {
+                    status(manager.cpuTemperature, manager.wifiStatus, manager.wifiConfig)
+                })
             }
             get("/") {
                 manager.tap()
@@ -166,35 +218,49 @@ class KtorServer(val manager: Manager,
                 manager.tap()
                 call.respond(mapOf("ping" to manager.ping()))
             }
+            get(metrics) {
+                call.respond(mapOf(
+                    "syncProgress" to manager.syncProgress,
+                    "autoLockRemainingSeconds" to manager.autoLockRemainingSeconds,
+                    "communicationChannel" to communicationChannel.bus.metrics(),
+                    "transactionUpdates" to transactionBus.metrics(),
+                    "blockingDispatcher" to blocking.metrics(),
+                    "tls" to tlsMetrics.metrics()))
+            }
+            get(startup) {
+                call.respond(mapOf(
+                    "totalMillis" to startupTimeline.totalMillis,
+                    "phases" to startupTimeline.phases))
+            }
             get(cpuTemp) {
                 manager.tap()
-                call.respond(mapOf("cpuTemp" to manager.cpuTemperature))
+                call.respond(mapOf("cpuTemp" to blocking.route(cpuTemp).run { manager.cpuTemperature }))
             }
 
             /* Network */
             get(wifiStatus) {
-                call.respond(mapOf("wifiStatus" to manager.wifiStatus))
+                call.respond(mapOf("wifiStatus" to blocking.route(wifiStatus).run { manager.wifiStatus }))
             }
             get(networks) {
-                call.respond(mapOf("networks" to manager.networkList))
+                call.respond(mapOf("networks" to blocking.route(networks).run { manager.networkList }))
             }
             post(setWifi) {
                 val params = call.receiveParameters()
                 val psk = params["psk"]!!
                 val ssid = params["ssid"]!!
 
-                manager.wifiConfig = mutableMapOf("ssid" to ssid, "psk" to psk)
+                blocking.route(setWifi).run { manager.wifiConfig = mutableMapOf("ssid" to ssid, "psk" to psk) }
 
                 call.respondRedirect(statusEndpoint)
             }
             get(setupWiFi) {
-                call.respond(setNetwork)
+                call.respond(setNetwork(blocking.route(networks).run { manager.networkList }))
             }
 
             /*Modules*/
             get(modules) {
                 manager.tap()
-                call.respond(manager.serverModules)
+                call.respondVersioned(manager.serverModules)
             }
 
             get(moduleInstall) {
@@ -212,7 +278,7 @@ class KtorServer(val manager: Manager,
                             dest.deleteOnExit()
                             part.streamProvider().use { input -> dest.outputStream().buffered().use { output -> input.copyToSuspend(output) } }
                             try {
-                                manager.uploadNewModule(dest, part.originalFileName)
+                                blocking.route(moduleInstallPost).run { manager.uploadNewModule(dest, part.originalFileName) }
                             } catch (e: Error) {
                                 call.respond(HttpStatusCode.NotAcceptable, errorUpload(e.message))
                             }
@@ -238,13 +304,15 @@ class KtorServer(val manager: Manager,
                 val id = call.parameters["id"]!!
                 val input = call.receiveText()
                 val inputMap: Map<String, String> = jacksonObjectMapper().readValue(input, object : TypeReference<Map<String, String>>() {})
-                val response = manager.nextStep(id, inputMap)
+                val response = blocking.route(nextStep, limit = 2).run { manager.nextStep(id, inputMap) }
                 call.respond(mapOf("response" to response.status))
             }
             post(restoreFromBackupPhrase) {
                 manager.tap()
                 val (mnemonicWords, modules, required) = call.receive<RestoreFromBackup>()
-                call.respond(manager.restoreFromBackupPhrase(mnemonicWords, modules, required))
+                call.respond(blocking.route(restoreFromBackupPhrase).run {
+                    manager.restoreFromBackupPhrase(mnemonicWords, modules, required)
+                })
             }
             get(walletStatus) {
                 manager.tap()
@@ -253,27 +321,29 @@ class KtorServer(val manager: Manager,
             post(unlockWallet) {
                 manager.tap()
                 val moduleToInputsMap = call.receive<Map<String, Map<String, String>>>()
-                call.respond(manager.unlockWallet(moduleToInputsMap))
+                call.respond(blocking.route(unlockWallet).run { manager.unlockWallet(moduleToInputsMap) })
             }
             post(loadWalletFromDisk) {
                 manager.tap()
                 val moduleToInputsMap = call.receive<Map<String, Map<String, String>>>()
-                call.respond(manager.loadWalletFromDisk(moduleToInputsMap))
+                call.respond(blocking.route(loadWalletFromDisk).run { manager.loadWalletFromDisk(moduleToInputsMap) })
             }
             post(setDatabasePassword) {
                 manager.tap()
                 val setDatabasePassword = call.receive<SetDatabasePassword>()
-                call.respond(manager.setDatabasePassword(setDatabasePassword.password))
+                call.respond(blocking.route(Paths.Utils.setDatabasePassword).run {
+                    manager.setDatabasePassword(setDatabasePassword.password)
+                })
             }
             get(lockWallet) {
-                call.respond(manager.lockWallet())
+                call.respond(blocking.route(lockWallet).run { manager.lockWallet() })
             }
 
             /*Bitcoin*/
             post(sendCoins) {
                 manager.tap()
                 val (amount, recipient) = call.receive<SendCoinBody>()
-                manager.sendCoins(amount, recipient)
+                blocking.route(sendCoins).run { manager.sendCoins(amount, recipient) }
                 call.respond(HttpStatusCode.OK)
             }
             get(currentAddress) {
@@ -286,56 +356,161 @@ class KtorServer(val manager: Manager,
             }
             get(estimatedBalance) {
                 manager.tap()
-                call.respond(mapOf("estimatedBalance" to manager.estimatedBalance))
+                call.respondVersioned(mapOf("estimatedBalance" to manager.estimatedBalance))
             }
             get(availableBalance) {
                 manager.tap()
-                call.respond(mapOf("availableBalance" to manager.availableBalance))
+                call.respondVersioned(mapOf("availableBalance" to manager.availableBalance))
             }
             get(allTransactions) {
                 manager.tap()
-                call.respond(mapOf("allTransactions" to manager.allTransactions))
+                call.respondVersioned(mapOf("allTransactions" to manager.allTransactions))
+            }
+            get(transactions) {
+                manager.tap()
+                val parameters = call.request.queryParameters
+                val limit = parameters["limit"]?.toIntOrNull() ?: defaultTransactionPageSize
+                val direction = parameters["direction"]?.let { TransactionDirection.valueOf(it.toUpperCase()) }
+                call.respondVersioned(manager.getTransactions(parameters["cursor"], Math.min(limit, maxTransactionPageSize),
+                    parameters["address"], direction))
             }
 
             webSocket("/blockChainSyncProgress") {
-                blockChainSyncProgressionChannel.consumeEach { progress ->
-                    outgoing.send(Frame.Text("$progress"))
+                blockChainSyncProgressionChannel.openSubscription().consumeEach { progress ->
+                    outgoing.send(Frame.Text("${progress.percentage}"))
                 }
             }
             webSocket("/autolock") {
-                autoLockChannel.consumeEach { timeRemaining ->
+                autoLockChannel.openSubscription().consumeEach { timeRemaining ->
                     outgoing.send(Frame.Text("$timeRemaining"))
                 }
             }
+            webSocket("/balanceUpdates") {
+                manager.tap()
+                balanceChannel.openSubscription().consumeEach { balance ->
+                    outgoing.send(Frame.Text(frameMapper.writeValueAsString(balance)))
+                }
+            }
+            webSocket("/transactionUpdates") {
+                manager.tap()
+                consumeTransactionUpdates(transactionBus.openSubscription()) { outgoing.send(Frame.Text(frameMapper.writeValueAsString(it))) }
+            }
             webSocket("/info") {
-                communicationChannel.channel
-                    .filter { it is Message.InfoMessage }
-                    .consumeEach { infoMessage ->
-                        outgoing.send(Frame.Text(infoMessage.message))
-                    }
+                sendAll(communicationChannel.bus.openSubscription { it is Message.InfoMessage }) { it.message }
             }
             webSocket("/error") {
-                communicationChannel.channel
-                    .filter { it is Message.ErrorMessage }
-                    .consumeEach { errorMessage ->
-                        outgoing.send(Frame.Text(errorMessage.message))
-                    }
+                sendAll(communicationChannel.bus.openSubscription { it is Message.ErrorMessage }) { it.message }
             }
             webSocket("/success") {
-                communicationChannel.channel
-                    .filter { it is Message.SuccessMessage }
-                    .consumeEach { successMessage ->
-                        outgoing.send(Frame.Text(successMessage.message))
+                sendAll(communicationChannel.bus.openSubscription { it is Message.SuccessMessage }) { it.message }
+            }
+            webSocket("/events") {
+                manager.tap()
+                val forwarders = EnumMap<EventTopic, Job>(EventTopic::class.java)
+                fun subscribe(topics: Set<EventTopic>) = topics.forEach { topic ->
+                    forwarders.computeIfAbsent(topic) { launch { forwardEvents(it) } }
+                }
+
+                try {
+                    subscribe(EventTopic.parse(call.request.queryParameters["topics"]))
+                    incoming.consumeEach { frame ->
+                        if (frame is Frame.Text) {
+                            val subscription = try {
+                                frameMapper.readValue(frame.readText(), EventSubscription::class.java)
+                            } catch (e: JsonProcessingException) {
+                                throw IllegalArgumentException("Malformed subscription", e)
+                            }
+                            subscribe(EventTopic.parse(subscription.subscribe))
+                            EventTopic.parse(subscription.unsubscribe).forEach { forwarders.remove(it)?.cancel() }
+                        }
                     }
+                } catch (e: IllegalArgumentException) {
+                    close(CloseReason(CloseReason.Codes.CANNOT_ACCEPT, e.message ?: "Bad subscription"))
+                } finally {
+                    forwarders.values.forEach(Job::cancel)
+                }
             }
         }
     }
 
+    /**
+     * Responds with JSON tagged by a hash of its content, or with 304 when the client already has it
+     */
+    private suspend fun ApplicationCall.respondVersioned(value: Any) {
+        val body = responseMapper.writeValueAsBytes(value)
+        // weak, as compressed representations differ byte-wise
+        val entityTag = "W/\"" + Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(MessageDigest.getInstance("SHA-256").digest(body).copyOf(entityTagBytes)) + "\""
+        response.header(HttpHeaders.ETag, entityTag)
+        val ifNoneMatch = request.headers[HttpHeaders.IfNoneMatch]
+        if (ifNoneMatch != null && ifNoneMatch.split(',').any { it.trim() == entityTag })
+            respond(HttpStatusCode.NotModified)
+        else
+            respondBytes(body, ContentType.Application.Json)
+    }
+
+    /**
+     * Sends events of the topic as compact JSON frames until cancelled, throttled topics send only the latest value
+     */
+    private suspend fun WebSocketSession.forwardEvents(topic: EventTopic) {
+        suspend fun send(data: Any) = outgoing.send(Frame.Text(frameMapper.writeValueAsString(Event(topic.id, data))))
+        suspend fun <T : Any> sendLatest(subscription: ReceiveChannel<T>) = subscription.consume {
+            while (true) {
+                send(receive())
+                if (topic.throttleMillis > 0)
+                    delay(topic.throttleMillis)
+            }
+        }
+
+        when (topic) {
+            EventTopic.SYNC_PROGRESS -> sendLatest(blockChainSyncProgressionChannel.openSubscription())
+            EventTopic.AUTOLOCK -> sendLatest(autoLockChannel.openSubscription())
+            EventTopic.BALANCE -> sendLatest(balanceChannel.openSubscription())
+            EventTopic.TRANSACTION -> consumeTransactionUpdates(transactionBus.openSubscription()) { send(it) }
+            EventTopic.INFO -> consumeAll(communicationChannel.bus.openSubscription { it is Message.InfoMessage }) { send(it.message) }
+            EventTopic.ERROR -> consumeAll(communicationChannel.bus.openSubscription { it is Message.ErrorMessage }) { send(it.message) }
+            EventTopic.SUCCESS -> consumeAll(communicationChannel.bus.openSubscription { it is Message.SuccessMessage }) { send(it.message) }
+        }
+    }
+
+    /**
+     * Sends every element of the subscription until the client disconnects, then closes the subscription
+     */
+    private suspend fun <T> WebSocketSession.sendAll(subscription: BroadcastBus<T>.Subscription, text: (T) -> String) =
+        consumeAll(subscription) { element -> outgoing.send(Frame.Text(text(element))) }
+
+    private suspend fun <T> consumeAll(subscription: BroadcastBus<T>.Subscription, consumer: suspend (T) -> Unit) =
+        subscription.use {
+            it.channel.consumeEach { element -> consumer(element) }
+        }
+
+    /**
+     * Sends transaction updates, a client which has missed some of them is first told to fetch transactions again
+     */
+    private suspend fun consumeTransactionUpdates(subscription: BroadcastBus<TransactionView>.Subscription,
+                                                  send: suspend (Any) -> Unit) {
+        var dropped = 0L
+        consumeAll(subscription) { transaction ->
+            val droppedNow = subscription.droppedCount
+            if (droppedNow != dropped) {
+                dropped = droppedNow
+                send(Resync(droppedNow))
+            }
+            send(transaction)
+        }
+    }
+
+    data class Resync(val dropped: Long, val resync: Boolean = true)
     data class RestoreFromBackup(val mnemonicWords: List<String>, val modules: Map<String, Map<String, String>>, val required: Int)
     data class SendCoinBody(val amount: String, val recipient: String)
     data class SetDatabasePassword(val password: String)
 
     companion object {
+        private const val defaultTransactionPageSize = 20
+        private const val maxTransactionPageSize = 100
+        private const val transactionUpdatesCapacity = 64
+        private const val entityTagBytes = 16
+
         fun startMocking() {
             KtorServer(
                 ManagerMock(),
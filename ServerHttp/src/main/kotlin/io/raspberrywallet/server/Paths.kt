@@ -8,7 +8,10 @@ sealed class Paths {
     object Utils : Paths() {
         const val ping = prefix + "ping"
         const val allTransactions = prefix + "allTransactions"
+        const val transactions = prefix + "transactions"
         const val cpuTemp = prefix + "cpuTemp"
+        const val metrics = prefix + "metrics"
+        const val startup = prefix + "diagnostics/startup"
         const val setDatabasePassword = prefix + "setDatabasePassword";
     }
 
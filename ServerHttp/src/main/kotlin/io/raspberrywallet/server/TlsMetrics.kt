@@ -0,0 +1,120 @@
+package io.raspberrywallet.server
+
+import io.netty.channel.*
+import io.netty.handler.ssl.OpenSsl
+import io.netty.handler.ssl.SslHandler
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Measures TLS handshakes and time to first response byte of accepted connections, and applies session cache
+ * settings to the server SSL context. Installed on server channels, as Ktor does not expose the SSL context
+ * nor the connection pipeline, connections without TLS are left untouched.
+ *
+ * @param sessionCacheSize      maximum number of cached sessions, which can be resumed without full handshake
+ * @param sessionTimeoutSeconds lifetime of cached sessions
+ */
+@ChannelHandler.Sharable
+class TlsMetrics(private val sessionCacheSize: Int, private val sessionTimeoutSeconds: Int) : ChannelInboundHandlerAdapter() {
+    private val sessionContextConfigured = AtomicBoolean()
+    private val handshakes = LongAdder()
+    private val failedHandshakes = LongAdder()
+    private val resumedSessions = LongAdder()
+    private val protocols = ConcurrentHashMap<String, LongAdder>()
+    private val handshakeTime = Timing()
+    private val timeToFirstByte = Timing()
+
+    override fun channelRead(ctx: ChannelHandlerContext, msg: Any) {
+        // accepted connection, its pipeline is initialized after this handler passes it on
+        if (msg is Channel)
+            msg.pipeline().addLast(ConnectionHandler(System.nanoTime()))
+        ctx.fireChannelRead(msg)
+    }
+
+    fun metrics() = mapOf(
+        "openSsl" to OpenSsl.isAvailable(),
+        "handshakes" to handshakes.sum(),
+        "failedHandshakes" to failedHandshakes.sum(),
+        "resumedSessions" to resumedSessions.sum(),
+        "protocols" to protocols.mapValues { it.value.sum() },
+        "handshakeMillis" to handshakeTime.metrics(),
+        "timeToFirstByteMillis" to timeToFirstByte.metrics())
+
+    private fun onHandshake(sslHandler: SslHandler, acceptedNanos: Long, acceptedMillis: Long, success: Boolean) {
+        if (!success) {
+            failedHandshakes.increment()
+            return
+        }
+        handshakes.increment()
+        handshakeTime.record(System.nanoTime() - acceptedNanos)
+        protocols.computeIfAbsent(sslHandler.applicationProtocol() ?: "http/1.1") { LongAdder() }.increment()
+
+        val session = sslHandler.engine().session
+        // resumed session was created by one of the previous connections
+        if (session.creationTime < acceptedMillis)
+            resumedSessions.increment()
+        if (sessionContextConfigured.compareAndSet(false, true))
+            session.sessionContext?.apply {
+                sessionCacheSize = this@TlsMetrics.sessionCacheSize
+                sessionTimeout = sessionTimeoutSeconds
+            }
+    }
+
+    private inner class ConnectionHandler(private val acceptedNanos: Long) : ChannelDuplexHandler() {
+        private val acceptedMillis = System.currentTimeMillis()
+        private var handshakeDone = false
+        private var requestReceived = false
+
+        override fun channelActive(ctx: ChannelHandlerContext) {
+            val sslHandler = ctx.pipeline().get(SslHandler::class.java)
+            if (sslHandler == null)
+                ctx.pipeline().remove(this)
+            else
+                sslHandler.handshakeFuture().addListener { future ->
+                    handshakeDone = future.isSuccess
+                    onHandshake(sslHandler, acceptedNanos, acceptedMillis, future.isSuccess)
+                    if (!future.isSuccess && ctx.channel().isActive)
+                        ctx.pipeline().remove(this)
+                }
+            ctx.fireChannelActive()
+        }
+
+        override fun channelRead(ctx: ChannelHandlerContext, msg: Any) {
+            if (handshakeDone)
+                requestReceived = true
+            ctx.fireChannelRead(msg)
+        }
+
+        override fun write(ctx: ChannelHandlerContext, msg: Any, promise: ChannelPromise) {
+            if (requestReceived) {
+                timeToFirstByte.record(System.nanoTime() - acceptedNanos)
+                ctx.pipeline().remove(this)
+            }
+            ctx.write(msg, promise)
+        }
+    }
+
+    private class Timing {
+        private val count = LongAdder()
+        private val totalNanos = LongAdder()
+        private val maxNanos = AtomicLong()
+
+        fun record(nanos: Long) {
+            count.increment()
+            totalNanos.add(nanos)
+            maxNanos.accumulateAndGet(nanos, Math::max)
+        }
+
+        fun metrics(): Map<String, Double> {
+            val count = count.sum()
+            return mapOf(
+                "average" to if (count == 0L) 0.0 else toMillis(totalNanos.sum() / count),
+                "max" to toMillis(maxNanos.get()))
+        }
+
+        private fun toMillis(nanos: Long) = nanos / TimeUnit.MILLISECONDS.toNanos(1).toDouble()
+    }
+}
@@ -0,0 +1,44 @@
+package io.raspberrywallet.contract
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+
+class BroadcastBusTest {
+
+    @Test
+    fun `every subscriber receives every accepted element`() {
+        val bus = BroadcastBus<Int>()
+        val all = bus.openSubscription()
+        val even = bus.openSubscription { it % 2 == 0 }
+
+        (1..4).forEach(bus::publish)
+
+        assertEquals(listOf(1, 2, 3, 4), generateSequence { all.channel.poll() }.toList())
+        assertEquals(listOf(2, 4), generateSequence { even.channel.poll() }.toList())
+        assertEquals(4, bus.publishedCount)
+    }
+
+    @Test
+    fun `when buffer is full oldest elements are dropped and counted`() {
+        val bus = BroadcastBus<Int>(capacity = 2)
+        val slow = bus.openSubscription()
+
+        (1..5).forEach(bus::publish)
+
+        assertEquals(listOf(4, 5), generateSequence { slow.channel.poll() }.toList())
+        assertEquals(3, slow.droppedCount)
+        assertEquals(3, bus.droppedCount)
+    }
+
+    @Test
+    fun `closed subscription stops receiving`() {
+        val bus = BroadcastBus<Int>()
+        val subscription = bus.openSubscription()
+        subscription.close()
+
+        bus.publish(1)
+
+        assertEquals(0, bus.subscribersCount)
+        assertTrue(subscription.channel.isClosedForReceive)
+    }
+}
@@ -0,0 +1,46 @@
+package io.raspberrywallet.server
+
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import java.util.concurrent.atomic.AtomicInteger
+
+class BlockingDispatcherTest {
+
+    private val dispatcher = BlockingDispatcher(threads = 4)
+
+    @Test
+    fun `route never runs more calls than its limit`() = runBlocking {
+        val route = dispatcher.route("unlock", limit = 2)
+        val running = AtomicInteger()
+        val maxRunning = AtomicInteger()
+
+        (1..8).map {
+            async {
+                route.run {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max)
+                    Thread.sleep(50)
+                    running.decrementAndGet()
+                }
+            }
+        }.awaitAll()
+
+        assertEquals(2, maxRunning.get())
+        assertEquals(8L, route.metrics()["completed"])
+        assertEquals(0L, route.metrics()["waiting"])
+    }
+
+    @Test
+    fun `calls run off the caller thread and failures are counted`() = runBlocking {
+        val route = dispatcher.route("lock")
+        val caller = Thread.currentThread()
+
+        assertNotSame(caller, route.run { Thread.currentThread() })
+        assertThrows<IllegalStateException> { runBlocking { route.run { throw IllegalStateException() } } }
+        assertEquals(1L, route.metrics()["failed"])
+        assertSame(route, dispatcher.route("lock"))
+    }
+}